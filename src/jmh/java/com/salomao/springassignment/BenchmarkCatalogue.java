@@ -0,0 +1,158 @@
+package com.salomao.springassignment;
+
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.index.BookTitleIndex;
+import com.salomao.springassignment.index.BookUniquenessIndex;
+import com.salomao.springassignment.replica.BookReplicas;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.IntFunction;
+import java.util.stream.Stream;
+
+/**
+ * Application context backed by an embedded H2 database seeded with a synthetic catalogue, shared by the benchmarks
+ */
+public final class BenchmarkCatalogue implements AutoCloseable {
+
+    private static final String[] WORDS = ("shadow kingdom river night dragon winter empire silent garden stone fire "
+            + "queen secret house ocean glass city storm iron crown forest island memory letter journey children "
+            + "summer moon mountain song war peace wolf raven gold silver broken hidden last first dark light").split(" ");
+
+    private static final int SEED_BATCH = 1000;
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(1900, 1, 1);
+
+    private final ConfigurableApplicationContext context;
+
+    private final int[] ids;
+
+    private BenchmarkCatalogue(ConfigurableApplicationContext context, int[] ids) {
+        this.context = context;
+        this.ids = ids;
+    }
+
+    /**
+     * Starts the application without a web server and seeds its database
+     *
+     * @param books      number of books to be seeded
+     * @param properties additional application properties, in 'key=value' format
+     * @return started catalogue
+     */
+    public static BenchmarkCatalogue start(int books, String... properties) {
+        return start(WebApplicationType.NONE, books, BenchmarkCatalogue::row, properties);
+    }
+
+    /**
+     * Starts the application with a web server on a random port and seeds its database
+     *
+     * @param books      number of books to be seeded
+     * @param properties additional application properties, in 'key=value' format
+     * @return started catalogue
+     */
+    public static BenchmarkCatalogue startWeb(int books, String... properties) {
+        return startWeb(books, BenchmarkCatalogue::row, properties);
+    }
+
+    /**
+     * Starts the application with a web server on a random port and seeds its database with the given rows
+     *
+     * @param books      number of books to be seeded
+     * @param rows       title, ISBN and publication date of the book at a position of the catalogue, unique for
+     *                   every position
+     * @param properties additional application properties, in 'key=value' format
+     * @return started catalogue
+     */
+    public static BenchmarkCatalogue startWeb(int books, IntFunction<Object[]> rows, String... properties) {
+        return start(WebApplicationType.SERVLET, books, rows,
+                Stream.concat(Stream.of("server.port=0"), Stream.of(properties)).toArray(String[]::new));
+    }
+
+    private static BenchmarkCatalogue start(WebApplicationType webApplicationType, int books,
+                                            IntFunction<Object[]> rows, String... properties) {
+        String[] defaults = {
+                "spring.datasource.url=jdbc:h2:mem:benchmark;LAZY_QUERY_EXECUTION=TRUE",
+                "spring.main.banner-mode=off",
+                "logging.level.root=warn"
+        };
+        ConfigurableApplicationContext context = new SpringApplicationBuilder(SpringAssignmentApplication.class)
+                .web(webApplicationType)
+                .properties(Stream.concat(Stream.of(defaults), Stream.of(properties)).toArray(String[]::new))
+                .run();
+
+        JdbcTemplate jdbc = context.getBean(JdbcTemplate.class);
+        List<Object[]> batch = new ArrayList<>(SEED_BATCH);
+        for (int i = 0; i < books; i++) {
+            batch.add(rows.apply(i));
+            if (batch.size() == SEED_BATCH || i == books - 1) {
+                jdbc.batchUpdate("INSERT INTO book (title, isbn, published_date) VALUES (?, ?, ?)", batch);
+                batch.clear();
+            }
+        }
+        context.getBean(BookUniquenessIndex.class).warm();
+        context.getBean(BookTitleIndex.class).warm();
+        context.getBean(BookDateHistogram.class).warm();
+        context.getBeanProvider(BookReplicas.class).ifAvailable(BenchmarkCatalogue::syncReplicas);
+
+        int[] ids = jdbc.queryForList("SELECT id FROM book ORDER BY id", Integer.class).stream()
+                .mapToInt(Integer::intValue)
+                .toArray();
+        return new BenchmarkCatalogue(context, ids);
+    }
+
+    /**
+     * Copies the seeded catalogue to the replicas, which only follow the change log on their own
+     */
+    private static void syncReplicas(BookReplicas replicas) {
+        replicas.sync();
+        while (replicas.lagging() > 0) {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static Object[] row(int i) {
+        return new Object[]{title(i), String.format("%013d", i), Date.valueOf(FIRST_DATE.plusDays(i % 45_000))};
+    }
+
+    /**
+     * @param i position of the book in the catalogue
+     * @return unique synthetic title
+     */
+    public static String title(int i) {
+        return WORDS[i % WORDS.length] + " " + WORDS[(i / WORDS.length) % WORDS.length] + " " + i;
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * @return port the web server listens on, only available when started with startWeb
+     */
+    public int port() {
+        return Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+    /**
+     * @return ids of every stored book, sorted
+     */
+    public int[] ids() {
+        return ids;
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+}
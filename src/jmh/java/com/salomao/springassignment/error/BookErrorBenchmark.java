@@ -0,0 +1,86 @@
+package com.salomao.springassignment.error;
+
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.web.message.BookMessages;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.ResourceBundleMessageSource;
+
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering a missing book: throwing the error from below a stack as deep as a request's and resolving its
+ * message. The stackless ResponseException with the cached message of BookMessages is compared with an exception
+ * filling in its stack trace and a message resolved and formatted on every error, as errors were answered before
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookErrorBenchmark {
+
+    /**
+     * Frames between the servlet container and the service throwing the error, about 100 in a Spring MVC request
+     */
+    @Param({"10", "100"})
+    private int depth;
+
+    private ResourceBundleMessageSource messageSource;
+
+    private BookMessages messages;
+
+    @Setup
+    public void setUp() {
+        messageSource = new ResourceBundleMessageSource();
+        messageSource.setBasename("messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        messages = new BookMessages(messageSource);
+    }
+
+    @Benchmark
+    public String stacklessError() {
+        int id = ThreadLocalRandom.current().nextInt(1, 1000);
+        try {
+            return String.valueOf(throwStackless(depth, id));
+        } catch (ResponseException e) {
+            return messages.get(e, Locale.ENGLISH);
+        }
+    }
+
+    @Benchmark
+    public String stackTraceError() {
+        int id = ThreadLocalRandom.current().nextInt(1, 1000);
+        try {
+            return String.valueOf(throwWithStackTrace(depth, id));
+        } catch (Exception e) {
+            return String.format(messageSource.getMessage(e.getMessage(), null, Locale.ENGLISH), id);
+        }
+    }
+
+    private static int throwStackless(int depth, int id) throws ResponseException {
+        if (depth == 0) {
+            throw new ResponseException(BookError.BOOK_NOT_FOUND, id);
+        }
+        return throwStackless(depth - 1, id) + 1;
+    }
+
+    private static int throwWithStackTrace(int depth, int id) throws Exception {
+        if (depth == 0) {
+            throw new Exception(BookError.BOOK_NOT_FOUND.getMessageCode());
+        }
+        return throwWithStackTrace(depth - 1, id) + 1;
+    }
+}
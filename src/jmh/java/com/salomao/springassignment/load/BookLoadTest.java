@@ -0,0 +1,301 @@
+package com.salomao.springassignment.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.salomao.springassignment.BenchmarkCatalogue;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.convert.DurationStyle;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-model load test of the book API: requests arrive at a fixed rate, or as a Poisson process, whether or not the
+ * previous ones completed, so a slow server faces a growing queue as it would in production instead of slowing the
+ * load generator down. Reports throughput and latency percentiles per operation, corrected for coordinated omission
+ * (see LoadRecorder), and fails when they cross the thresholds or regress against a baseline.
+ * <p>
+ * Starts the application with a synthetic catalogue, unless load.target points to a running instance. Settings are
+ * system properties, see the README. Application properties of the started instance, such as book.execution.mode,
+ * are given in load.app-properties
+ */
+public final class BookLoadTest {
+
+    private static final String ALL = "ALL";
+
+    private final ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private BookLoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.exit(new BookLoadTest().run() ? 0 : 1);
+    }
+
+    private boolean run() throws Exception {
+        int books = Integer.parseInt(property("load.books", "100000"));
+        long seed = Long.parseLong(property("load.seed", "42"));
+        LoadProfile profile = LoadProfile.parse(property("load.profile", "read-heavy"));
+        double rate = Double.parseDouble(property("load.rate", "500"));
+        boolean poisson = property("load.arrivals", "constant").equals("poisson");
+        Duration warmup = DurationStyle.detectAndParse(property("load.warmup", "10s"));
+        Duration duration = DurationStyle.detectAndParse(property("load.duration", "60s"));
+        Duration timeout = DurationStyle.detectAndParse(property("load.request-timeout", "30s"));
+        int maxInFlight = Integer.parseInt(property("load.max-in-flight", "10000"));
+        String target = property("load.target", "");
+
+        SyntheticCatalogue catalogue = new SyntheticCatalogue(seed);
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Integer.parseInt(property("load.client-threads", "16")));
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(executor)
+                .build();
+        BenchmarkCatalogue application = null;
+        try {
+            URI baseUri;
+            int[] ids;
+            if (target.isBlank()) {
+                System.out.printf("Seeding %d books%n", books);
+                String[] properties = Arrays.stream(property("load.app-properties", "").split(","))
+                        .filter(setting -> !setting.isBlank())
+                        .toArray(String[]::new);
+                application = BenchmarkCatalogue.startWeb(books, catalogue::row, properties);
+                baseUri = URI.create("http://localhost:" + application.port());
+                ids = application.ids();
+            } else {
+                baseUri = URI.create(target.endsWith("/") ? target.substring(0, target.length() - 1) : target);
+                ids = fetchIds(client, baseUri, books);
+            }
+            if (ids.length == 0) {
+                throw new IllegalStateException("The catalogue has no books to read");
+            }
+            int firstWrite = Integer.parseInt(property("load.write-offset", String.valueOf(books)));
+            LoadWorkload workload = new LoadWorkload(baseUri, ids, catalogue, firstWrite, timeout);
+
+            System.out.printf("Sending %s requests at %.0f/s to %s: %s warm-up, %s measured%n", profile.getName(),
+                    rate, baseUri, warmup, duration);
+            Map<LoadOperation, LoadRecorder> recorders = send(client, workload, profile, rate, poisson, warmup,
+                    duration, maxInFlight, seed);
+
+            Map<String, Map<String, Object>> operations = summarize(recorders, duration);
+            Map<String, Object> result = new LinkedHashMap<>();
+            result.put("profile", profile.getName());
+            result.put("rate", rate);
+            result.put("arrivals", poisson ? "poisson" : "constant");
+            result.put("durationSeconds", duration.toMillis() / 1000.0);
+            result.put("books", ids.length);
+            result.put("operations", operations);
+            print(operations);
+
+            Path resultFile = Path.of(property("load.result", "target/load-result.json"));
+            Files.createDirectories(resultFile.toAbsolutePath().getParent());
+            objectMapper.writeValue(resultFile.toFile(), result);
+            System.out.println("Result written to " + resultFile);
+
+            List<String> violations = check(operations.get(ALL), rate);
+            violations.forEach(violation -> System.out.println("FAILED: " + violation));
+            return violations.isEmpty();
+        } finally {
+            executor.shutdownNow();
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    /**
+     * Sends requests on the schedule of the arrival process until the warm-up and the measurement are over, then
+     * waits for the outstanding ones. Requests due during the warm-up are recorded apart and discarded
+     */
+    private Map<LoadOperation, LoadRecorder> send(HttpClient client, LoadWorkload workload, LoadProfile profile,
+                                                  double rate, boolean poisson, Duration warmup, Duration duration,
+                                                  int maxInFlight, long seed) throws InterruptedException {
+        Map<LoadOperation, LoadRecorder> warmupRecorders = recorders();
+        Map<LoadOperation, LoadRecorder> recorders = recorders();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        SplittableRandom random = new SplittableRandom(seed);
+        double interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + warmup.toNanos();
+        long end = measureFrom + duration.toNanos();
+        double offset = 0;
+        for (long next = start; next < end; next = start + (long) offset) {
+            long dueNanos = next;
+            for (long wait = dueNanos - System.nanoTime(); wait > 0; wait = dueNanos - System.nanoTime()) {
+                LockSupport.parkNanos(wait);
+            }
+            // a saturated client delays the next requests, their latency still counts from when they were due
+            inFlight.acquire();
+            LoadOperation operation = profile.pick(random);
+            LoadRecorder recorder = (dueNanos < measureFrom ? warmupRecorders : recorders).get(operation);
+            HttpRequest request = workload.request(operation, random);
+            long sentNanos = System.nanoTime();
+            client.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, failure) -> {
+                boolean success = failure == null && response.statusCode() < 400;
+                recorder.record(dueNanos, sentNanos, System.nanoTime(), success);
+                inFlight.release();
+            });
+            offset += poisson ? -Math.log(1 - random.nextDouble()) * interval : interval;
+        }
+        inFlight.acquire(maxInFlight);
+        return recorders;
+    }
+
+    private static Map<LoadOperation, LoadRecorder> recorders() {
+        Map<LoadOperation, LoadRecorder> recorders = new EnumMap<>(LoadOperation.class);
+        for (LoadOperation operation : LoadOperation.values()) {
+            recorders.put(operation, new LoadRecorder());
+        }
+        return recorders;
+    }
+
+    private static Map<String, Map<String, Object>> summarize(Map<LoadOperation, LoadRecorder> recorders,
+                                                              Duration duration) {
+        Map<String, Map<String, Object>> operations = new LinkedHashMap<>();
+        LoadRecorder all = new LoadRecorder();
+        recorders.forEach((operation, recorder) -> {
+            if (recorder.getCount() > 0) {
+                operations.put(operation.name(), summarize(recorder, duration));
+                all.add(recorder);
+            }
+        });
+        operations.put(ALL, summarize(all, duration));
+        return operations;
+    }
+
+    private static Map<String, Object> summarize(LoadRecorder recorder, Duration duration) {
+        Histogram latency = recorder.getLatency();
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", recorder.getCount());
+        summary.put("errors", recorder.getErrors());
+        summary.put("errorRate",
+                recorder.getCount() == 0 ? 0.0 : (double) recorder.getErrors() / recorder.getCount());
+        summary.put("throughput", recorder.getCount() * 1000.0 / duration.toMillis());
+        summary.put("p50", millis(latency.getValueAtPercentile(50)));
+        summary.put("p99", millis(latency.getValueAtPercentile(99)));
+        summary.put("p999", millis(latency.getValueAtPercentile(99.9)));
+        summary.put("max", millis(latency.getMaxValue()));
+        summary.put("serviceP99", millis(recorder.getServiceTime().getValueAtPercentile(99)));
+        return summary;
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void print(Map<String, Map<String, Object>> operations) {
+        System.out.printf("%n%-8s %10s %8s %12s %10s %10s %10s %10s %12s%n", "", "requests", "errors", "req/s",
+                "p50 ms", "p99 ms", "p99.9 ms", "max ms", "service p99");
+        operations.forEach((operation, summary) -> System.out.printf(
+                "%-8s %10d %8d %12.1f %10.2f %10.2f %10.2f %10.2f %12.2f%n", operation, summary.get("requests"),
+                summary.get("errors"), summary.get("throughput"), summary.get("p50"), summary.get("p99"),
+                summary.get("p999"), summary.get("max"), summary.get("serviceP99")));
+        System.out.println();
+    }
+
+    /**
+     * Checks the overall results against the thresholds of load.thresholds, such as
+     * 'p99=100ms,p999=500ms,errors=0.01,throughput=0.95' (throughput as share of the target rate), and against the
+     * result file of load.baseline, allowing the load.tolerance share of regression
+     */
+    private List<String> check(Map<String, Object> all, double rate) throws IOException {
+        List<String> violations = new ArrayList<>();
+        String thresholds = property("load.thresholds", "");
+        for (String threshold : thresholds.split(",")) {
+            if (threshold.isBlank()) {
+                continue;
+            }
+            String[] parts = threshold.split("=");
+            String name = parts[0].trim();
+            String limit = parts.length == 2 ? parts[1].trim() : "";
+            switch (name) {
+                case "p50", "p99", "p999", "max" -> {
+                    double maximum = DurationStyle.detectAndParse(limit).toNanos() / 1e6;
+                    if ((double) all.get(name) > maximum) {
+                        violations.add(String.format("%s latency %.2f ms exceeds %s", name, all.get(name), limit));
+                    }
+                }
+                case "errors" -> {
+                    if ((double) all.get("errorRate") > Double.parseDouble(limit)) {
+                        violations.add(String.format("error rate %.4f exceeds %s", all.get("errorRate"), limit));
+                    }
+                }
+                case "throughput" -> {
+                    double minimum = Double.parseDouble(limit) * rate;
+                    if ((double) all.get("throughput") < minimum) {
+                        violations.add(String.format("throughput %.1f/s is below %.1f/s", all.get("throughput"),
+                                minimum));
+                    }
+                }
+                default -> throw new IllegalArgumentException("Unknown load threshold " + threshold);
+            }
+        }
+
+        String baseline = property("load.baseline", "");
+        if (!baseline.isBlank()) {
+            double tolerance = Double.parseDouble(property("load.tolerance", "0.2"));
+            JsonNode previous = objectMapper.readTree(Path.of(baseline).toFile()).path("operations").path(ALL);
+            for (String percentile : List.of("p99", "p999")) {
+                double allowed = previous.path(percentile).asDouble() * (1 + tolerance);
+                if ((double) all.get(percentile) > allowed) {
+                    violations.add(String.format("%s latency %.2f ms regressed beyond %.2f ms of the baseline",
+                            percentile, all.get(percentile), allowed));
+                }
+            }
+            double minimum = previous.path("throughput").asDouble() * (1 - tolerance);
+            if ((double) all.get("throughput") < minimum) {
+                violations.add(String.format("throughput %.1f/s regressed below %.1f/s of the baseline",
+                        all.get("throughput"), minimum));
+            }
+        }
+        return violations;
+    }
+
+    /**
+     * Collects the ids of a running instance by paging through GET /book
+     */
+    private int[] fetchIds(HttpClient client, URI baseUri, int books) throws IOException, InterruptedException {
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            String uri = baseUri + "/book?limit=500"
+                    + (cursor == null ? "" : "&cursor=" + URLEncoder.encode(cursor, StandardCharsets.UTF_8));
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(uri)).GET().build(),
+                    HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() != 200) {
+                throw new IOException("Listing the books of " + baseUri + " failed with " + response.statusCode());
+            }
+            JsonNode page = objectMapper.readTree(response.body());
+            page.path("books").forEach(book -> ids.add(book.path("id").asInt()));
+            cursor = page.path("nextCursor").isTextual() ? page.path("nextCursor").asText() : null;
+        } while (cursor != null && ids.size() < books);
+        return ids.stream().limit(books).mapToInt(Integer::intValue).toArray();
+    }
+
+    private static String property(String name, String defaultValue) {
+        return System.getProperty(name, defaultValue);
+    }
+}
@@ -0,0 +1,32 @@
+package com.salomao.springassignment.load;
+
+/**
+ * Requests the load test sends, each to a real endpoint of BookController
+ */
+public enum LoadOperation {
+
+    /**
+     * GET /book/{id} of an existing book
+     */
+    READ,
+
+    /**
+     * GET /book, first page of 50 books by publication date
+     */
+    LIST,
+
+    /**
+     * GET /book?title= with a word drawn like the words of the catalogue titles
+     */
+    SEARCH,
+
+    /**
+     * GET /book?ids= of a shelf of 50 existing books
+     */
+    LOOKUP,
+
+    /**
+     * POST /book of a new book
+     */
+    WRITE
+}
@@ -0,0 +1,83 @@
+package com.salomao.springassignment.load;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Share of every operation in the requests of a load test, either a named profile or weights such as
+ * 'read=70,search=20,write=10'
+ */
+public final class LoadProfile {
+
+    private static final Map<String, String> PROFILES = Map.of(
+            "read-heavy", "read=70,list=10,search=10,lookup=5,write=5",
+            "search-heavy", "read=20,list=10,search=60,lookup=5,write=5",
+            "write-heavy", "read=30,list=10,search=10,write=50",
+            "mixed", "read=40,list=15,search=20,lookup=10,write=15");
+
+    private final String name;
+
+    private final LoadOperation[] operations;
+
+    private final int[] cumulativeWeights;
+
+    private LoadProfile(String name, LoadOperation[] operations, int[] cumulativeWeights) {
+        this.name = name;
+        this.operations = operations;
+        this.cumulativeWeights = cumulativeWeights;
+    }
+
+    /**
+     * @param profile name of a profile, or weights of the operations
+     * @return LoadProfile
+     * @throws IllegalArgumentException if the profile is unknown or its weights are malformed
+     */
+    public static LoadProfile parse(String profile) {
+        String weights = PROFILES.getOrDefault(profile, profile);
+        List<LoadOperation> operations = new ArrayList<>();
+        List<Integer> cumulativeWeights = new ArrayList<>();
+        int total = 0;
+        for (String weight : weights.split(",")) {
+            String[] parts = weight.split("=");
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Unknown load profile " + profile + ", use one of "
+                        + PROFILES.keySet() + " or weights such as read=70,search=20,write=10");
+            }
+            int share = Integer.parseInt(parts[1].trim());
+            if (share < 0) {
+                throw new IllegalArgumentException("Negative weight in load profile " + profile);
+            }
+            if (share > 0) {
+                total += share;
+                operations.add(LoadOperation.valueOf(parts[0].trim().toUpperCase(Locale.ROOT)));
+                cumulativeWeights.add(total);
+            }
+        }
+        if (total == 0) {
+            throw new IllegalArgumentException("Load profile " + profile + " sends no requests");
+        }
+        return new LoadProfile(profile, operations.toArray(LoadOperation[]::new),
+                cumulativeWeights.stream().mapToInt(Integer::intValue).toArray());
+    }
+
+    /**
+     * @param random source of randomness
+     * @return operation of the next request, in proportion to the weights
+     */
+    public LoadOperation pick(SplittableRandom random) {
+        int draw = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < operations.length; i++) {
+            if (draw < cumulativeWeights[i]) {
+                return operations[i];
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    public String getName() {
+        return name;
+    }
+}
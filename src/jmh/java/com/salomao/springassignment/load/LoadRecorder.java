@@ -0,0 +1,69 @@
+package com.salomao.springassignment.load;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latencies and outcomes of the requests of one operation, recorded concurrently by the threads completing them.
+ * <p>
+ * Latency is measured from the time the request was due by the arrival schedule, not from the time it was sent. A
+ * server that stalls delays the requests queued behind the stall, and those delays are part of what clients would
+ * see, so the percentiles aren't corrupted by coordinated omission. The time from sending to completion is recorded
+ * apart as the service time, the latency a closed-model load generator would report
+ */
+public class LoadRecorder {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Histogram latency = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+    private final Histogram serviceTime = new ConcurrentHistogram(HIGHEST_MICROS, 3);
+
+    private final LongAdder errors = new LongAdder();
+
+    /**
+     * @param dueNanos       time the request was due, System.nanoTime
+     * @param sentNanos      time the request was sent
+     * @param completedNanos time the response or the failure arrived
+     * @param success        true if the response status was below 400
+     */
+    public void record(long dueNanos, long sentNanos, long completedNanos, boolean success) {
+        latency.recordValue(micros(completedNanos - dueNanos));
+        serviceTime.recordValue(micros(completedNanos - sentNanos));
+        if (!success) {
+            errors.increment();
+        }
+    }
+
+    /**
+     * @param other recorder whose requests are added to this one
+     */
+    public void add(LoadRecorder other) {
+        latency.add(other.latency);
+        serviceTime.add(other.serviceTime);
+        errors.add(other.errors.sum());
+    }
+
+    public Histogram getLatency() {
+        return latency;
+    }
+
+    public Histogram getServiceTime() {
+        return serviceTime;
+    }
+
+    public long getCount() {
+        return latency.getTotalCount();
+    }
+
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    private static long micros(long nanos) {
+        return Math.min(Math.max(TimeUnit.NANOSECONDS.toMicros(nanos), 0), HIGHEST_MICROS);
+    }
+}
@@ -0,0 +1,101 @@
+package com.salomao.springassignment.load;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+/**
+ * Builds the requests of every operation against a catalogue: reads and lookups of existing ids, searches for words
+ * of the catalogue's titles and inserts of new books generated like the catalogue's ones. Only used by the thread
+ * sending the requests
+ */
+public class LoadWorkload {
+
+    private static final int SHELF = 50;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final URI baseUri;
+
+    private final int[] ids;
+
+    private final SyntheticCatalogue catalogue;
+
+    private final Duration timeout;
+
+    private int nextWrite;
+
+    /**
+     * @param baseUri    URI of the application, without a trailing slash
+     * @param ids        ids of books that exist
+     * @param catalogue  generator of the catalogue
+     * @param firstWrite position in the catalogue of the first inserted book, past the seeded ones
+     * @param timeout    time a request may take before it counts as failed
+     */
+    public LoadWorkload(URI baseUri, int[] ids, SyntheticCatalogue catalogue, int firstWrite, Duration timeout) {
+        this.baseUri = baseUri;
+        this.ids = ids;
+        this.catalogue = catalogue;
+        this.nextWrite = firstWrite;
+        this.timeout = timeout;
+    }
+
+    /**
+     * @param operation operation of the request
+     * @param random    source of randomness
+     * @return request of the operation
+     */
+    public HttpRequest request(LoadOperation operation, SplittableRandom random) {
+        return switch (operation) {
+            case READ -> get("/book/" + ids[random.nextInt(ids.length)]);
+            case LIST -> get("/book?limit=50&sort=PUBLISHED_DATE_DESC");
+            case SEARCH -> get("/book?limit=20&title="
+                    + URLEncoder.encode(catalogue.word(random), StandardCharsets.UTF_8));
+            case LOOKUP -> get("/book?ids=" + shelf(random));
+            case WRITE -> post("/book", book(nextWrite++));
+        };
+    }
+
+    private String shelf(SplittableRandom random) {
+        StringJoiner shelf = new StringJoiner(",");
+        for (int i = 0; i < SHELF; i++) {
+            shelf.add(String.valueOf(ids[random.nextInt(ids.length)]));
+        }
+        return shelf.toString();
+    }
+
+    private String book(int position) {
+        try {
+            return objectMapper.writeValueAsString(Map.of(
+                    "title", catalogue.title(position),
+                    "isbn", catalogue.isbn(position),
+                    "publishedDate", catalogue.publishedDate(position).toString()));
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(timeout)
+                .GET()
+                .build();
+    }
+
+    private HttpRequest post(String path, String body) {
+        return HttpRequest.newBuilder(URI.create(baseUri + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+    }
+}
@@ -0,0 +1,171 @@
+package com.salomao.springassignment.load;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.SplittableRandom;
+
+/**
+ * Generates catalogues that look like real ones to the indexes and the database, reproducibly from a seed.
+ * <p>
+ * Titles are one to seven words drawn from a Zipf distribution, so a few words appear in many titles and most in
+ * few, as with real titles, and searches for common words match far more books than searches for rare ones. Some
+ * titles get a leading article or a subtitle, and every title ends with its edition number, which keeps titles unique
+ * as the schema requires. ISBNs are valid ISBN-13s with 978 or 979 prefixes, a share of them written as ISBN-10s, and
+ * publication dates lean towards recent years. The book at a position is always the same for the same seed
+ */
+public class SyntheticCatalogue {
+
+    private static final String[] VOCABULARY = ("love night house time world life war day man girl death dark king "
+            + "secret heart river city shadow last lost little light dead blood game wind queen garden moon star "
+            + "summer winter stone fire water sea island road home story book letter child children family mother "
+            + "father daughter son brother sister wife husband friend stranger god angel devil ghost witch dragon "
+            + "empire kingdom crown throne sword iron gold silver glass bone black white red blue green long great "
+            + "old new first second hidden broken silent wild deep cold hot bright empty forgotten missing final "
+            + "dangerous beautiful american english french london paris rome history art science music "
+            + "mountain forest desert ocean storm rain snow sun sky earth journey return escape fall rise end "
+            + "beginning promise truth lie memory dream hope fear power glory honor justice freedom murder mystery "
+            + "case affair guide introduction handbook principles theory practice modern ancient lessons notes "
+            + "tales songs poems words voices lives days years hours nights rules ways"
+    ).split(" ");
+
+    private static final String[] ARTICLES = {"The ", "A ", "An "};
+
+    private static final String[] SUBTITLES = {": A Novel", ": A Memoir", ": A History", ": Stories",
+            ": Collected Poems", ": A Guide", ": The Complete Edition", " and Other Stories"};
+
+    /**
+     * Cumulative share of titles starting with up to 1, 2, ... 7 words
+     */
+    private static final double[] TITLE_LENGTHS = {0.10, 0.35, 0.60, 0.78, 0.90, 0.96, 1.0};
+
+    private static final double ZIPF_EXPONENT = 1.07;
+
+    /**
+     * Multiplier coprime with 10^9, spreading positions over the 9 digit ISBN bodies without repeating one
+     */
+    private static final long ISBN_SCRAMBLE = 387_420_489L;
+
+    private static final long ISBN_BODIES = 1_000_000_000L;
+
+    private static final int LAST_YEAR = 2022;
+
+    private final long seed;
+
+    private final double[] zipf;
+
+    /**
+     * @param seed seed of the generated catalogue
+     */
+    public SyntheticCatalogue(long seed) {
+        this.seed = seed;
+        this.zipf = new double[VOCABULARY.length];
+        double total = 0;
+        for (int rank = 0; rank < VOCABULARY.length; rank++) {
+            total += 1 / Math.pow(rank + 1, ZIPF_EXPONENT);
+            zipf[rank] = total;
+        }
+        for (int rank = 0; rank < zipf.length; rank++) {
+            zipf[rank] /= total;
+        }
+    }
+
+    /**
+     * @param i position of the book in the catalogue, below 10^9
+     * @return title, ISBN and publication date of the book, as inserted by BenchmarkCatalogue
+     */
+    public Object[] row(int i) {
+        return new Object[]{title(i), isbn(i), Date.valueOf(publishedDate(i))};
+    }
+
+    /**
+     * @param i position of the book in the catalogue
+     * @return unique title
+     */
+    public String title(int i) {
+        SplittableRandom random = random(i, 1);
+        StringBuilder title = new StringBuilder();
+        if (random.nextDouble() < 0.3) {
+            title.append(ARTICLES[random.nextInt(ARTICLES.length)]);
+        }
+        int words = 1;
+        double length = random.nextDouble();
+        while (TITLE_LENGTHS[words - 1] < length) {
+            words++;
+        }
+        for (int w = 0; w < words; w++) {
+            String word = word(random);
+            title.append(w == 0 ? Character.toUpperCase(word.charAt(0)) + word.substring(1) : word);
+            title.append(' ');
+        }
+        title.setLength(title.length() - 1);
+        if (random.nextDouble() < 0.15) {
+            title.append(SUBTITLES[random.nextInt(SUBTITLES.length)]);
+        }
+        return title.append(" (").append(i + 1).append(')').toString();
+    }
+
+    /**
+     * @param i position of the book in the catalogue, below 10^9
+     * @return unique ISBN-13, or ISBN-10 for about one book in ten
+     */
+    public String isbn(int i) {
+        SplittableRandom random = random(i, 2);
+        String body = String.format("%09d", Math.floorMod(i * ISBN_SCRAMBLE + seed, ISBN_BODIES));
+        if (random.nextDouble() < 0.1) {
+            return body + isbn10CheckDigit(body);
+        }
+        String digits = (random.nextDouble() < 0.9 ? "978" : "979") + body;
+        return digits + isbn13CheckDigit(digits);
+    }
+
+    /**
+     * @param i position of the book in the catalogue
+     * @return publication date, exponentially more likely the more recent the year
+     */
+    public LocalDate publishedDate(int i) {
+        SplittableRandom random = random(i, 3);
+        int age = (int) Math.min(-Math.log(1 - random.nextDouble()) * 25, LAST_YEAR - 1450);
+        LocalDate year = LocalDate.of(LAST_YEAR - age, 1, 1);
+        return year.plusDays(random.nextInt(year.lengthOfYear()));
+    }
+
+    /**
+     * @param random source of randomness
+     * @return word of the vocabulary, common words far more often than rare ones
+     */
+    public String word(SplittableRandom random) {
+        double p = random.nextDouble();
+        int low = 0;
+        int high = zipf.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (zipf[middle] < p) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return VOCABULARY[low];
+    }
+
+    private SplittableRandom random(int i, int field) {
+        return new SplittableRandom(seed * 31 + i * 0x9E3779B97F4A7C15L + field);
+    }
+
+    private static char isbn10CheckDigit(String body) {
+        int sum = 0;
+        for (int d = 0; d < 9; d++) {
+            sum += (10 - d) * (body.charAt(d) - '0');
+        }
+        int check = (11 - sum % 11) % 11;
+        return check == 10 ? 'X' : (char) ('0' + check);
+    }
+
+    private static char isbn13CheckDigit(String digits) {
+        int sum = 0;
+        for (int d = 0; d < 12; d++) {
+            sum += (d % 2 == 0 ? 1 : 3) * (digits.charAt(d) - '0');
+        }
+        return (char) ('0' + (10 - sum % 10) % 10);
+    }
+}
@@ -0,0 +1,90 @@
+package com.salomao.springassignment.replica;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.repository.BookKeyset;
+import com.salomao.springassignment.repository.BookSort;
+import com.salomao.springassignment.service.BookService;
+import com.salomao.springassignment.web.dto.BookPageOut;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listings competing with a writer, with every transaction on a single pool and with read-only transactions routed
+ * to the replicas. The pools are kept small so connections are the contended resource. With replicas, the writer
+ * keeps them behind the primary part of the time, which the lag guard serves from the primary
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookReadRoutingBenchmark {
+
+    private static final LocalDate FIRST_DATE = LocalDate.of(1900, 1, 1);
+
+    @Param({"100000"})
+    private int books;
+
+    @Param({"false", "true"})
+    private boolean replicas;
+
+    private BenchmarkCatalogue catalogue;
+
+    private BookService bookService;
+
+    @Setup
+    public void setUp() {
+        catalogue = BenchmarkCatalogue.start(books,
+                "spring.datasource.hikari.maximum-pool-size=4",
+                "spring.jpa.open-in-view=false",
+                "spring.jpa.properties.hibernate.connection.handling_mode="
+                        + "DELAYED_ACQUISITION_AND_RELEASE_AFTER_TRANSACTION",
+                "book.replicas.enabled=" + replicas,
+                "book.replicas.count=2",
+                "book.replicas.maximum-pool-size=4");
+        bookService = catalogue.getBean(BookService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogue.close();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(7)
+    public BookPageOut read() throws ResponseException {
+        int position = ThreadLocalRandom.current().nextInt(books);
+        String cursor = new BookKeyset(BookSort.ID_ASC, catalogue.ids()[position], null).encode();
+        return bookService.getAllBooksBySpecification(null, null, BookSort.ID_ASC, cursor, 50);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public String write() throws ResponseException {
+        int position = ThreadLocalRandom.current().nextInt(books);
+        LocalDate publishedDate = FIRST_DATE.plusDays(ThreadLocalRandom.current().nextInt(45_000));
+        return bookService.updateBook(catalogue.ids()[position], new BookRecordIn(BenchmarkCatalogue.title(position),
+                String.format("%013d", position), publishedDate), null);
+    }
+}
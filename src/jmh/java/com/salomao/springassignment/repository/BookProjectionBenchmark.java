@@ -0,0 +1,86 @@
+package com.salomao.springassignment.repository;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a page as managed entities mapped to DTOs against projecting it straight into DTOs.
+ * Compare gc.alloc.rate.norm of both methods to see the allocation saved by the projection
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookProjectionBenchmark {
+
+    private static final String ENTITY_QUERY = "select b from Book b order by b.id";
+
+    private static final String PROJECTION_QUERY = "select new com.salomao.springassignment.web.dto.BookRecordOut("
+            + "b.id, b.title, b.isbn, b.publishedDate, b.version) from Book b order by b.id";
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private BenchmarkCatalogue catalogue;
+
+    private EntityManagerFactory entityManagerFactory;
+
+    @Setup
+    public void setUp() {
+        catalogue = BenchmarkCatalogue.start(10_000);
+        entityManagerFactory = catalogue.getBean(EntityManagerFactory.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public List<BookRecordOut> entities() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(ENTITY_QUERY, Book.class)
+                    .setMaxResults(pageSize)
+                    .getResultList()
+                    .stream()
+                    .map(book -> new BookRecordOut(book.getId(), book.getTitle(), book.getIsbn(),
+                            book.getPublishedDate(), book.getVersion()))
+                    .toList();
+        } finally {
+            entityManager.close();
+        }
+    }
+
+    @Benchmark
+    public List<BookRecordOut> projection() {
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            return entityManager.createQuery(PROJECTION_QUERY, BookRecordOut.class)
+                    .setMaxResults(pageSize)
+                    .getResultList();
+        } finally {
+            entityManager.close();
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.repository.BookSort;
+import com.salomao.springassignment.web.dto.BookPageOut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Listing pages of several sizes and filtered listings
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookListingBenchmark {
+
+    @Param({"10000", "100000"})
+    private int books;
+
+    @Param({"10", "100", "1000"})
+    private int pageSize;
+
+    private BenchmarkCatalogue catalogue;
+
+    private BookService bookService;
+
+    private Specification<Book> publishedIn1950s;
+
+    private String selectiveTitle;
+
+    private Specification<Book> selectiveTitleSpec;
+
+    @Setup
+    public void setUp() {
+        catalogue = BenchmarkCatalogue.start(books, "book.page.max-size=" + pageSize);
+        bookService = catalogue.getBean(BookService.class);
+
+        LocalDate from = LocalDate.of(1950, 1, 1);
+        LocalDate to = LocalDate.of(1959, 12, 31);
+        publishedIn1950s = (root, query, cb) -> cb.between(root.get("publishedDate"), from, to);
+        selectiveTitle = BenchmarkCatalogue.title(books / 2);
+        selectiveTitleSpec = (root, query, cb) -> cb.like(root.get("title"), "%" + selectiveTitle + "%");
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public BookPageOut firstPage() throws ResponseException {
+        return bookService.getAllBooksBySpecification(null, null, BookSort.ID_ASC, null, pageSize);
+    }
+
+    @Benchmark
+    public BookPageOut dateRangeByPublishedDate() throws ResponseException {
+        return bookService.getAllBooksBySpecification(publishedIn1950s, null, BookSort.PUBLISHED_DATE_ASC, null,
+                pageSize);
+    }
+
+    @Benchmark
+    public BookPageOut titleSearch() throws ResponseException {
+        return bookService.getAllBooksBySpecification(selectiveTitleSpec, selectiveTitle, BookSort.ID_ASC, null,
+                pageSize);
+    }
+}
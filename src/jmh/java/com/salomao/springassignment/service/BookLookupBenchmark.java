@@ -0,0 +1,111 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.web.dto.BookLookupOut;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Book lookups by id, with and without the book cache: single lookups, from one thread and from many threads whose
+ * cache misses are coalesced, and shelves of books read one by one or with a single multi-get
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookLookupBenchmark {
+
+    @Param({"10000", "100000"})
+    private int books;
+
+    @Param({"true", "false"})
+    private boolean cacheEnabled;
+
+    @Param({"0ms", "1ms"})
+    private String coalesceWindow;
+
+    @Param({"100"})
+    private int shelf;
+
+    private BenchmarkCatalogue catalogue;
+
+    private BookService bookService;
+
+    private int[] ids;
+
+    @Setup
+    public void setUp() {
+        catalogue = BenchmarkCatalogue.start(books, "book.cache.enabled=" + cacheEnabled,
+                "book.lookup.coalesce-window=" + coalesceWindow);
+        bookService = catalogue.getBean(BookService.class);
+        ids = catalogue.ids();
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public BookRecordOut getBookById() throws ResponseException {
+        return bookService.getBookById(ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public Object getMissingBook() {
+        try {
+            return bookService.getBookById(-ThreadLocalRandom.current().nextInt(1, 1000));
+        } catch (ResponseException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    @Threads(32)
+    public BookRecordOut getBookByIdConcurrently() throws ResponseException {
+        return getBookById();
+    }
+
+    @Benchmark
+    public List<BookRecordOut> getShelfOneByOne() throws ResponseException {
+        List<BookRecordOut> found = new ArrayList<>(shelf);
+        for (Integer id : shelfIds()) {
+            found.add(bookService.getBookById(id));
+        }
+        return found;
+    }
+
+    @Benchmark
+    public BookLookupOut getShelf() throws ResponseException {
+        return bookService.getBooksByIds(shelfIds());
+    }
+
+    private List<Integer> shelfIds() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Integer> shelfIds = new ArrayList<>(shelf);
+        for (int i = 0; i < shelf; i++) {
+            shelfIds.add(ids[random.nextInt(ids.length)]);
+        }
+        return shelfIds;
+    }
+}
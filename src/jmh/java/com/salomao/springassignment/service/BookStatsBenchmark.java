@@ -0,0 +1,67 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.web.dto.BookStatsOut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Publication date statistics over the whole seeded range, from the in-memory histogram and from the database
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookStatsBenchmark {
+
+    private static final LocalDate FROM = LocalDate.of(1900, 1, 1);
+
+    private static final LocalDate TO = LocalDate.of(2023, 12, 31);
+
+    @Param({"100000", "1000000"})
+    private int books;
+
+    @Param({"true", "false"})
+    private boolean histogramEnabled;
+
+    private BenchmarkCatalogue catalogue;
+
+    private BookStatsService bookStatsService;
+
+    @Setup
+    public void setUp() {
+        catalogue = BenchmarkCatalogue.start(books, "book.stats.enabled=" + histogramEnabled);
+        bookStatsService = catalogue.getBean(BookStatsService.class);
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public BookStatsOut perYear() throws ResponseException {
+        return bookStatsService.getStats(FROM, TO, BookStatsBucket.YEAR);
+    }
+
+    @Benchmark
+    public BookStatsOut perMonth() throws ResponseException {
+        return bookStatsService.getStats(FROM, TO, BookStatsBucket.MONTH);
+    }
+}
@@ -0,0 +1,75 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookSnapshotOut;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to write the catalogue to a snapshot and to load it back into an empty catalogue. Every load is a single shot
+ * measured from an empty table, as on the startup of a new instance
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class BookSnapshotBenchmark {
+
+    private static final String SNAPSHOT = "benchmark.snapshot";
+
+    @Param({"1000000", "3000000"})
+    private int books;
+
+    private Path directory;
+
+    private BenchmarkCatalogue catalogue;
+
+    private BookSnapshotService snapshotService;
+
+    @Setup
+    public void setUp() throws IOException, ResponseException {
+        directory = Files.createTempDirectory("book-snapshots");
+        catalogue = BenchmarkCatalogue.start(books, "book.snapshot.directory=" + directory);
+        snapshotService = catalogue.getBean(BookSnapshotService.class);
+        snapshotService.write(SNAPSHOT);
+    }
+
+    @Setup(Level.Iteration)
+    public void emptyCatalogue() {
+        BookRepository bookRepo = catalogue.getBean(BookRepository.class);
+        catalogue.getBean(TransactionTemplate.class).executeWithoutResult(status -> bookRepo.deleteAllRows());
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        catalogue.close();
+        FileSystemUtils.deleteRecursively(directory);
+    }
+
+    @Benchmark
+    public BookSnapshotOut load() throws ResponseException {
+        return snapshotService.load(SNAPSHOT);
+    }
+}
@@ -0,0 +1,97 @@
+package com.salomao.springassignment.web;
+
+import com.salomao.springassignment.BenchmarkCatalogue;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP load against a running server, comparing the BLOCKING and OFFLOAD execution modes. The container is given
+ * fewer threads than there are concurrent clients, so the run shows how each mode copes once container threads are
+ * the scarce resource. SampleTime reports the latency percentiles next to the throughput.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Threads(64)
+@Fork(1)
+public class BookExecutionModeBenchmark {
+
+    private static final int BOOKS = 100_000;
+
+    @Param({"BLOCKING", "OFFLOAD"})
+    private String mode;
+
+    @Param({"16"})
+    private int containerThreads;
+
+    private BenchmarkCatalogue catalogue;
+
+    private HttpClient client;
+
+    private String baseUrl;
+
+    private int[] ids;
+
+    @Setup
+    public void setUp() {
+        catalogue = BenchmarkCatalogue.startWeb(BOOKS,
+                "book.execution.mode=" + mode,
+                "book.cache.enabled=false",
+                "server.tomcat.threads.max=" + containerThreads,
+                "server.tomcat.accept-count=1000");
+        client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        baseUrl = "http://localhost:" + catalogue.port() + "/book";
+        ids = catalogue.ids();
+    }
+
+    @TearDown
+    public void tearDown() {
+        catalogue.close();
+    }
+
+    @Benchmark
+    public int getBook() throws IOException, InterruptedException {
+        return send(baseUrl + "/" + ids[ThreadLocalRandom.current().nextInt(ids.length)]);
+    }
+
+    @Benchmark
+    public int getBooksByPublishedDate() throws IOException, InterruptedException {
+        int year = ThreadLocalRandom.current().nextInt(1900, 2020);
+        return send(baseUrl + "?publishedAfter=" + year + "-01-01&publishedBefore=" + year + "-12-31"
+                + "&sort=PUBLISHED_DATE_ASC");
+    }
+
+    private int send(String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url)).GET().build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() >= 500 && response.statusCode() != 503) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " for " + url);
+        }
+        return response.statusCode();
+    }
+}
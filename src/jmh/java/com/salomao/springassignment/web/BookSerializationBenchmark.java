@@ -0,0 +1,139 @@
+package com.salomao.springassignment.web;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import com.salomao.springassignment.web.export.BookExportFormat;
+import com.salomao.springassignment.web.export.BookExportWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Jackson serialization of BookRecord lists, configured like the application's ObjectMapper and its CBOR and Smile
+ * converters, and the binary export formats. The bytes each encoding puts on the wire, plain and gzipped as the server
+ * compresses large responses, are printed once per trial
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookSerializationBenchmark {
+
+    public enum Encoding {
+        JSON(new JsonFactory()),
+        CBOR(new CBORFactory()),
+        SMILE(new SmileFactory());
+
+        private final JsonFactory factory;
+
+        Encoding(JsonFactory factory) {
+            this.factory = factory;
+        }
+    }
+
+    @Param({"10", "100", "1000", "10000"})
+    private int size;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private Encoding encoding;
+
+    private ObjectMapper objectMapper;
+
+    private List<BookRecordOut> books;
+
+    @Setup
+    public void setUp() throws IOException {
+        objectMapper = Jackson2ObjectMapperBuilder.json()
+                .factory(encoding.factory)
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+        books = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            books.add(new BookRecordOut(i + 1, "game of thrones " + i, String.format("%013d", i),
+                    LocalDate.of(1996, 8, 1).plusDays(i), 0L));
+        }
+        byte[] list = serializeList();
+        System.out.printf("%n%s list of %d books: %d bytes, %d gzipped%n", encoding, size, list.length,
+                gzip(list).length);
+        if (encoding != Encoding.JSON) {
+            BookExportFormat format = BookExportFormat.valueOf(encoding.name());
+            byte[] export = export(format);
+            byte[] snapshot = export(BookExportFormat.SNAPSHOT);
+            System.out.printf("%s export: %d bytes, %d gzipped; snapshot export: %d bytes%n", encoding,
+                    export.length, gzip(export).length, snapshot.length);
+        }
+    }
+
+    /**
+     * Serialization of a listing, as the message converter of the encoding writes it
+     */
+    @Benchmark
+    public byte[] serializeList() throws IOException {
+        return objectMapper.writeValueAsBytes(books);
+    }
+
+    /**
+     * Serialization and gzip compression of a listing, as sent to a client accepting gzip when above the threshold
+     */
+    @Benchmark
+    public byte[] serializeListGzipped() throws IOException {
+        return gzip(objectMapper.writeValueAsBytes(books));
+    }
+
+    /**
+     * Streamed export of the books, NDJSON for the JSON encoding
+     */
+    @Benchmark
+    public byte[] exportBooks() throws IOException {
+        return export(encoding == Encoding.JSON ? BookExportFormat.NDJSON : BookExportFormat.valueOf(encoding.name()));
+    }
+
+    /**
+     * Streamed export in the schema based snapshot format, independent of the encoding parameter
+     */
+    @Benchmark
+    public byte[] exportSnapshot() throws IOException {
+        return export(BookExportFormat.SNAPSHOT);
+    }
+
+    private byte[] export(BookExportFormat format) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BookExportWriter writer = BookExportWriter.of(format, out, objectMapper);
+        for (BookRecordOut book : books) {
+            writer.write(book);
+        }
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
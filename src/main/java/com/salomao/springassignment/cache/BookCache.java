@@ -0,0 +1,150 @@
+package com.salomao.springassignment.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+/**
+ * Read-through cache of BookRecords by id. Missing books are cached as empty values with a shorter time to live,
+ * so repeated probes for unknown ids don't reach the database either. Bounded by size, using Caffeine's
+ * W-TinyLFU eviction.
+ * <p>
+ * Values are held as futures, so a load only has to register its pending result while it holds the lock of its id
+ * and the caller waits for it afterwards. A book invalidated while its load is pending is dropped from the cache, and
+ * the load completing afterwards doesn't put it back
+ */
+@Component
+public class BookCache implements MeterBinder {
+
+    private final boolean enabled;
+
+    private final AsyncCache<Integer, Optional<BookRecordOut>> cache;
+
+    public BookCache(BookProperties bookProperties) {
+        BookProperties.Cache config = bookProperties.getCache();
+        this.enabled = config.isEnabled();
+        long ttl = config.getTtl().toNanos();
+        long negativeTtl = config.getNegativeTtl().toNanos();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(config.getMaximumSize())
+                .expireAfter(new Expiry<Integer, Optional<BookRecordOut>>() {
+                    @Override
+                    public long expireAfterCreate(Integer id, Optional<BookRecordOut> book, long currentTime) {
+                        return book.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Integer id, Optional<BookRecordOut> book, long currentTime,
+                                                  long currentDuration) {
+                        return book.isPresent() ? ttl : negativeTtl;
+                    }
+
+                    @Override
+                    public long expireAfterRead(Integer id, Optional<BookRecordOut> book, long currentTime,
+                                                long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Returns a cached book, loading it on a miss. Concurrent misses for the same id share a single load
+     *
+     * @param id     book id
+     * @param loader starts reading the book from the database, completes with empty if it doesn't exist. It runs
+     *               while the cache holds a lock, so a read that waits for anything should complete the future later
+     *               instead of blocking
+     * @return the book, or empty if it doesn't exist
+     */
+    public Optional<BookRecordOut> get(Integer id,
+                                       Function<Integer, CompletableFuture<Optional<BookRecordOut>>> loader) {
+        CompletableFuture<Optional<BookRecordOut>> book = enabled
+                ? cache.get(id, (key, executor) -> loader.apply(key))
+                : loader.apply(id);
+        return join(book);
+    }
+
+    /**
+     * Returns cached books, loading every missing one with a single call of the loader
+     *
+     * @param ids    book ids
+     * @param loader reads the books from the database, returns an empty value for every id that doesn't exist
+     * @return the book or an empty value of every id
+     */
+    public Map<Integer, Optional<BookRecordOut>> getAll(
+            Collection<Integer> ids, Function<Set<? extends Integer>, Map<Integer, Optional<BookRecordOut>>> loader) {
+        if (!enabled) {
+            return loader.apply(new HashSet<>(ids));
+        }
+        return join(cache.getAll(ids, (missing, executor) -> {
+            Set<Integer> keys = new HashSet<>();
+            missing.forEach(keys::add);
+            return CompletableFuture.completedFuture(loader.apply(keys));
+        }));
+    }
+
+    /**
+     * Waits for a load, rethrowing its exception as the loader threw it
+     */
+    private static <T> T join(CompletableFuture<T> load) {
+        try {
+            return load.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Replaces the cached value of a book with its current state
+     *
+     * @param book book as written to the database
+     */
+    public void put(BookRecordOut book) {
+        if (enabled) {
+            cache.put(book.id(), CompletableFuture.completedFuture(Optional.of(book)));
+        }
+    }
+
+    /**
+     * Removes the cached value, found or missing, of a book
+     *
+     * @param id book id
+     */
+    public void invalidate(Integer id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, cache.synchronous(), "book");
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+}
@@ -0,0 +1,34 @@
+package com.salomao.springassignment.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Actuator endpoint exposing the statistics of the book cache at /actuator/bookcache
+ */
+@Component
+@Endpoint(id = "bookcache")
+@RequiredArgsConstructor
+public class BookCacheEndpoint {
+
+    private final BookCache bookCache;
+
+    @ReadOperation
+    public Map<String, Object> stats() {
+        CacheStats stats = bookCache.stats();
+        Map<String, Object> response = new LinkedHashMap<>();
+        response.put("size", bookCache.size());
+        response.put("hitCount", stats.hitCount());
+        response.put("missCount", stats.missCount());
+        response.put("hitRate", stats.hitRate());
+        response.put("evictionCount", stats.evictionCount());
+        response.put("averageLoadPenaltyNanos", stats.averageLoadPenalty());
+        return response;
+    }
+}
@@ -0,0 +1,33 @@
+package com.salomao.springassignment.cache;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Catalogue-wide change counter, incremented after every committed write. Listings are tagged with it, so a client
+ * polling an unchanged catalogue can be answered without running its query. The counter lives in memory, so the
+ * version also carries the startup time to never repeat a value across restarts
+ */
+@Component
+public class CatalogueVersion {
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong changes = new AtomicLong();
+
+    /**
+     * Records a committed write
+     */
+    public void changed() {
+        changes.incrementAndGet();
+    }
+
+    /**
+     * @return current version of the catalogue. Read it before running a query, so a write racing with the query
+     * makes the tag older than the result and never newer
+     */
+    public String current() {
+        return Long.toString(startedAt, 36) + "-" + changes.get();
+    }
+}
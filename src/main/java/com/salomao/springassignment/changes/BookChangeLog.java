@@ -0,0 +1,165 @@
+package com.salomao.springassignment.changes;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.web.dto.BookChangeOut;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * In-memory log of the latest catalogue changes, published by the write paths after commit. Changes are numbered
+ * by a sequence and kept in a ring buffer of fixed capacity, so readers tail it from the sequence they last saw
+ * and a reader that falls further behind than the capacity is told it missed changes instead of being buffered.
+ * The sequence restarts with every run, so positions handed to readers also carry the startup time of the run
+ */
+@Component
+public class BookChangeLog {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final BookChangeOut[] ring;
+
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    private long latest;
+
+    public BookChangeLog(BookProperties bookProperties) {
+        this.ring = new BookChangeOut[bookProperties.getChanges().getCapacity()];
+    }
+
+    /**
+     * Registers a callback run after every publication, outside of the log lock
+     *
+     * @param listener callback
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void inserted(BookRecordOut book) {
+        insertedAll(List.of(book));
+    }
+
+    public void insertedAll(List<BookRecordOut> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        Instant at = Instant.now();
+        synchronized (this) {
+            for (BookRecordOut book : books) {
+                append(BookChangeOut.Type.INSERTED, book.id(), book, at);
+            }
+        }
+        notifyListeners();
+    }
+
+    public void updated(BookRecordOut book) {
+        updatedAll(List.of(book));
+    }
+
+    public void updatedAll(List<BookRecordOut> books) {
+        if (books.isEmpty()) {
+            return;
+        }
+        Instant at = Instant.now();
+        synchronized (this) {
+            for (BookRecordOut book : books) {
+                append(BookChangeOut.Type.UPDATED, book.id(), book, at);
+            }
+        }
+        notifyListeners();
+    }
+
+    public void deleted(Integer id) {
+        deletedAll(List.of(id));
+    }
+
+    public void deletedAll(List<Integer> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Instant at = Instant.now();
+        synchronized (this) {
+            for (Integer id : ids) {
+                append(BookChangeOut.Type.DELETED, id, null, at);
+            }
+        }
+        notifyListeners();
+    }
+
+    private void append(BookChangeOut.Type type, Integer id, BookRecordOut book, Instant at) {
+        latest++;
+        ring[(int) (latest % ring.length)] = new BookChangeOut(latest, type, id, book, at);
+    }
+
+    private void notifyListeners() {
+        listeners.forEach(Runnable::run);
+    }
+
+    /**
+     * @return sequence of the latest change, 0 if nothing changed since startup
+     */
+    public synchronized long latest() {
+        return latest;
+    }
+
+    /**
+     * @param sequence sequence of a change of this run
+     * @return position of the change, to be handed to readers that resume later, possibly from another run
+     */
+    public String positionOf(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Resolves a position returned by positionOf
+     *
+     * @param position position of the last change already seen
+     * @return sequence of the change, or -1 if the position is malformed or belongs to another run, which read
+     * answers with a gap
+     */
+    public long sequenceOf(String position) {
+        int separator = position.lastIndexOf('-');
+        if (separator < 0 || !position.substring(0, separator).equals(epoch)) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(position.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the changes published after a sequence
+     *
+     * @param after sequence of the last change already seen
+     * @param max   maximum number of changes to be returned
+     * @return ChangeBatch with the next changes in sequence order, or a gap if some of them were already overwritten
+     * or the sequence was never published, as happens with a sequence of a previous run
+     */
+    public synchronized ChangeBatch read(long after, int max) {
+        long oldest = Math.max(1, latest - ring.length + 1);
+        if (after < 0 || after > latest || after + 1 < oldest) {
+            return new ChangeBatch(List.of(), true, latest);
+        }
+        int count = (int) Math.min(max, latest - after);
+        List<BookChangeOut> changes = new ArrayList<>(count);
+        for (long sequence = after + 1; sequence <= after + count; sequence++) {
+            changes.add(ring[(int) (sequence % ring.length)]);
+        }
+        return new ChangeBatch(changes, false, latest);
+    }
+
+    /**
+     * @param changes changes read, in sequence order
+     * @param gap     true if the reader missed changes and must resynchronize from a full listing
+     * @param latest  sequence of the latest change when the batch was read
+     */
+    public record ChangeBatch(List<BookChangeOut> changes, boolean gap, long latest) {
+    }
+}
@@ -0,0 +1,382 @@
+package com.salomao.springassignment.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Tunable settings for the book API, bound from the 'book' prefix in application.yml
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "book")
+public class BookProperties {
+
+    private Page page = new Page();
+
+    private Export export = new Export();
+
+    private Batch batch = new Batch();
+
+    private Cache cache = new Cache();
+
+    private Uniqueness uniqueness = new Uniqueness();
+
+    private Search search = new Search();
+
+    private Execution execution = new Execution();
+
+    private BulkImport bulkImport = new BulkImport();
+
+    private Stats stats = new Stats();
+
+    private Changes changes = new Changes();
+
+    private Startup startup = new Startup();
+
+    private Snapshot snapshot = new Snapshot();
+
+    private Replicas replicas = new Replicas();
+
+    private Lookup lookup = new Lookup();
+
+    private Errors errors = new Errors();
+
+    @Data
+    public static class Page {
+
+        /**
+         * Page size used when the client does not inform one
+         */
+        private int defaultSize = 50;
+
+        /**
+         * Upper bound for the page size, larger requested sizes are clamped to it
+         */
+        private int maxSize = 500;
+
+        /**
+         * Resolves the effective page size for a request
+         *
+         * @param requested page size informed by the client, may be null
+         * @return page size between 1 and maxSize
+         */
+        public int resolve(Integer requested) {
+            if (requested == null) {
+                return Math.min(defaultSize, maxSize);
+            }
+            return Math.max(1, Math.min(requested, maxSize));
+        }
+    }
+
+    @Data
+    public static class Export {
+
+        /**
+         * Number of rows fetched from the database per round trip while exporting
+         */
+        private int fetchSize = 500;
+
+        /**
+         * Longest time an export may stream, instead of the much shorter spring.mvc.async.request-timeout
+         */
+        private Duration timeout = Duration.ofHours(1);
+
+        /**
+         * Number of rows written between flushes of the response
+         */
+        private int flushEvery = 1000;
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Maximum number of books accepted by a single batch insert
+         */
+        private int maxItems = 10000;
+
+        /**
+         * Number of books checked and written per transaction
+         */
+        private int chunkSize = 500;
+    }
+
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of cached ids, found or missing
+         */
+        private long maximumSize = 100_000;
+
+        /**
+         * Time to live of a cached book
+         */
+        private Duration ttl = Duration.ofMinutes(10);
+
+        /**
+         * Time to live of a cached 'not found' result
+         */
+        private Duration negativeTtl = Duration.ofSeconds(30);
+    }
+
+    @Data
+    public static class Uniqueness {
+
+        /**
+         * Number of books the title and ISBN filters are sized for
+         */
+        private long expectedBooks = 1_000_000;
+
+        /**
+         * False positive rate of the filters while the catalogue is below expectedBooks. A false positive only costs
+         * a uniqueness query
+         */
+        private double falsePositiveRate = 0.01;
+    }
+
+    @Data
+    public static class Search {
+
+        private boolean enabled = true;
+
+        /**
+         * Title searches matching more candidates than this are not selective enough to benefit from the index and
+         * are left to the database
+         */
+        private int maxCandidates = 5000;
+    }
+
+    @Data
+    public static class Execution {
+
+        private Mode mode = Mode.BLOCKING;
+
+        /**
+         * Worker threads used by the OFFLOAD mode. More threads than database connections only adds waiting threads
+         */
+        private int threads = 10;
+
+        /**
+         * Requests waiting for a worker thread in OFFLOAD mode. Requests beyond it are rejected with 503
+         */
+        private int queueCapacity = 1000;
+
+        public enum Mode {
+            /**
+             * Requests run on the servlet container threads
+             */
+            BLOCKING,
+            /**
+             * Requests run on a bounded worker pool, releasing the servlet container threads while they wait
+             */
+            OFFLOAD
+        }
+    }
+
+    @Data
+    public static class BulkImport {
+
+        /**
+         * Directory import files are read from. Files outside of it are refused
+         */
+        private Path directory = Path.of("imports");
+
+        /**
+         * Number of rows checked and written per transaction. Progress is checkpointed after every chunk
+         */
+        private int chunkSize = 5000;
+
+        /**
+         * Threads decoding, parsing and validating chunks ahead of the writer
+         */
+        private int parseThreads = Runtime.getRuntime().availableProcessors();
+
+        /**
+         * Size of the buffer the file is read through
+         */
+        private DataSize readBufferSize = DataSize.ofMegabytes(4);
+
+        /**
+         * How long a finished import can still be looked up by its id
+         */
+        private Duration jobRetention = Duration.ofHours(1);
+    }
+
+    @Data
+    public static class Stats {
+
+        private boolean enabled = true;
+
+        /**
+         * First year counted per day in memory. Ranges reaching outside of the window are counted by the database
+         */
+        private int firstYear = 1000;
+
+        /**
+         * Last year counted per day in memory
+         */
+        private int lastYear = 2999;
+
+        /**
+         * Upper bound for the number of buckets of a single request
+         */
+        private int maxBuckets = 10000;
+    }
+
+    @Data
+    public static class Changes {
+
+        /**
+         * Number of latest changes kept in memory. Consumers further behind are told to resynchronize
+         */
+        private int capacity = 65536;
+
+        /**
+         * Maximum number of changes sent in a single event
+         */
+        private int batchSize = 500;
+
+        /**
+         * Maximum number of concurrent consumers, further ones are rejected with 503
+         */
+        private int maxSubscribers = 100;
+
+        /**
+         * Threads writing changes to consumers
+         */
+        private int deliveryThreads = 2;
+
+        /**
+         * Interval of the comments sent to idle consumers to detect closed connections
+         */
+        private Duration heartbeat = Duration.ofSeconds(15);
+
+        /**
+         * Lifetime of a stream, consumers reconnect with Last-Event-ID afterwards
+         */
+        private Duration timeout = Duration.ofMinutes(30);
+    }
+
+    @Data
+    public static class Startup {
+
+        /**
+         * Requests sent to the application itself before it reports ready, to get the hot paths compiled by the JIT.
+         * 0 disables the warm-up
+         */
+        private int warmupRequests = 0;
+
+        /**
+         * Threads sending the warm-up requests
+         */
+        private int warmupThreads = 4;
+
+        /**
+         * Stops the application once warmed up. Used by the class-data archive training run
+         */
+        private boolean exitAfterWarmup = false;
+    }
+
+    @Data
+    public static class Snapshot {
+
+        /**
+         * Directory snapshots are written to and loaded from. Files outside of it are refused
+         */
+        private Path directory = Path.of("snapshots");
+
+        /**
+         * Snapshot loaded at startup when the catalogue is empty, relative to the directory. Null disables loading
+         */
+        private String loadOnStartup;
+
+        /**
+         * Number of books inserted per transaction while loading
+         */
+        private int chunkSize = 10000;
+
+        /**
+         * Number of rows fetched from the database at a time while writing
+         */
+        private int fetchSize = 1000;
+    }
+
+    @Data
+    public static class Replicas {
+
+        /**
+         * Routes read-only transactions to in-process replicas fed from the change log, see BookReplicas
+         */
+        private boolean enabled = false;
+
+        /**
+         * Number of replicas
+         */
+        private int count = 1;
+
+        /**
+         * Connections of the pool of every replica. The primary pool is sized by spring.datasource.hikari
+         */
+        private int maximumPoolSize = 10;
+
+        /**
+         * Maximum number of changes applied to a replica per transaction
+         */
+        private int batchSize = 500;
+
+        /**
+         * Time a change waits before it is applied to the replicas, to reproduce the replication lag of remote
+         * replicas in tests and benchmarks
+         */
+        private Duration applyDelay = Duration.ZERO;
+    }
+
+    @Data
+    public static class Lookup {
+
+        /**
+         * Maximum number of ids of a multi-get
+         */
+        private int maxIds = 1000;
+
+        /**
+         * Ids per IN query of a multi-get
+         */
+        private int chunkSize = 500;
+
+        /**
+         * Time a single book lookup that missed the cache while another lookup is being read waits for concurrent
+         * lookups to share its query. Lookups arriving while no query runs don't wait. 0 queries every lookup on its
+         * own, see BookLookupBatcher
+         */
+        private Duration coalesceWindow = Duration.ofMillis(1);
+
+        /**
+         * Lookups that send a shared query before the window ends
+         */
+        private int maxBatchSize = 100;
+
+        /**
+         * Threads sending the shared queries of single book lookups
+         */
+        private int flushThreads = 4;
+    }
+
+    @Data
+    public static class Errors {
+
+        /**
+         * Every error code is logged on its first occurrence and then once per this many occurrences, 1 logs every
+         * error. Every error is logged at debug level regardless
+         */
+        private int logEvery = 1000;
+    }
+}
@@ -0,0 +1,46 @@
+package com.salomao.springassignment.config;
+
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.replica.BookReplicas;
+import com.salomao.springassignment.replica.BookRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the auto-configured data source with one routing read-only transactions to the replicas when
+ * book.replicas.enabled is set. The primary keeps the spring.datasource settings, its pool included
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "book.replicas", name = "enabled", havingValue = "true")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    public BookReplicas bookReplicas(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                     BookChangeLog changeLog, BookProperties bookProperties) {
+        return new BookReplicas(primaryDataSource, changeLog, bookProperties);
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 BookReplicas bookReplicas, MeterRegistry registry) {
+        return new LazyConnectionDataSourceProxy(
+                new BookRoutingDataSource(primaryDataSource, bookReplicas, registry));
+    }
+}
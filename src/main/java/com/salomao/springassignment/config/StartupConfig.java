@@ -0,0 +1,21 @@
+package com.salomao.springassignment.config;
+
+import com.salomao.springassignment.index.BookDateHistogram;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StartupConfig {
+
+    /**
+     * Beans created at startup even when spring.main.lazy-initialization is on: the date histogram must be counted
+     * before the application accepts requests, see BookDateHistogram
+     *
+     * @return LazyInitializationExcludeFilter matching the eager beans
+     */
+    @Bean
+    static LazyInitializationExcludeFilter eagerBookBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(BookDateHistogram.class);
+    }
+}
@@ -1,18 +1,102 @@
 package com.salomao.springassignment.config;
 
-import net.kaczmarzyk.spring.data.jpa.web.SpecificationArgumentResolver;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.salomao.springassignment.web.spec.BookSpecArgumentResolver;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.AsyncWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
 import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.Callable;
 
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
 
+    /**
+     * Request attribute holding a Duration that replaces spring.mvc.async.request-timeout for the request, for the
+     * few responses that legitimately stream for long, such as exports
+     */
+    public static final String ASYNC_TIMEOUT_ATTRIBUTE = WebMvcConfig.class.getName() + ".asyncTimeout";
+
     @Override
     public void addArgumentResolvers(List<HandlerMethodArgumentResolver> argumentResolvers) {
-        argumentResolvers.add(new SpecificationArgumentResolver());
+        argumentResolvers.add(new BookSpecArgumentResolver());
+    }
+
+    /**
+     * Applies the timeout a handler set in ASYNC_TIMEOUT_ATTRIBUTE, right before the request goes async. Returned
+     * StreamingResponseBody and Callable values take no timeout of their own
+     */
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new CallableProcessingInterceptor() {
+            @Override
+            public <T> void beforeConcurrentHandling(NativeWebRequest request, Callable<T> task) {
+                Object timeout = request.getAttribute(ASYNC_TIMEOUT_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+                if (timeout instanceof Duration duration && request instanceof AsyncWebRequest asyncRequest) {
+                    asyncRequest.setTimeout(duration.toMillis());
+                }
+            }
+        });
+    }
+
+    /**
+     * Book responses are negotiated on the Accept header, so caches must keep the representations apart. Requests
+     * completed asynchronously run the interceptor again on their second dispatch, hence the check for the header
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new HandlerInterceptor() {
+            @Override
+            public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+                boolean varies = response.getHeaders(HttpHeaders.VARY).stream()
+                        .flatMap(vary -> Arrays.stream(vary.split(",")))
+                        .anyMatch(header -> header.trim().equalsIgnoreCase(HttpHeaders.ACCEPT));
+                if (!varies) {
+                    response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+                }
+                return true;
+            }
+        }).addPathPatterns("/book", "/book/**");
     }
 
+    /**
+     * Answers requests accepting application/cbor. Replaces the converter Spring MVC registers by default, whose
+     * mapper ignores the spring.jackson settings and would write dates unlike the JSON responses
+     *
+     * @param builder builder configured like the JSON ObjectMapper
+     * @return MappingJackson2CborHttpMessageConverter
+     */
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(builder.factory(new CBORFactory()).build());
+    }
+
+    /**
+     * Answers requests accepting application/x-jackson-smile, configured like the JSON ObjectMapper
+     *
+     * @param builder builder configured like the JSON ObjectMapper
+     * @return MappingJackson2SmileHttpMessageConverter
+     */
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(builder.factory(new SmileFactory()).build());
+    }
 }
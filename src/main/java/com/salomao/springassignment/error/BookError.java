@@ -0,0 +1,45 @@
+package com.salomao.springassignment.error;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Errors answered by the book API, each with its status and the code of its message in messages.properties. Errors
+ * are told apart by these constants, never by the text of an exception message
+ */
+@Getter
+public enum BookError {
+    BOOK_NOT_FOUND(HttpStatus.NOT_FOUND, "error.book.notFound"),
+    BOOK_NOT_UNIQUE(HttpStatus.BAD_REQUEST, "error.book.notUnique"),
+    PRECONDITION_FAILED(HttpStatus.PRECONDITION_FAILED, "error.book.preconditionFailed"),
+    CONFLICT(HttpStatus.CONFLICT, "error.book.conflict"),
+    WRITE_IN_PROGRESS(HttpStatus.CONFLICT, "error.book.writeInProgress"),
+    INVALID_CURSOR(HttpStatus.BAD_REQUEST, "error.book.invalidCursor"),
+    RELEVANCE_UNAVAILABLE(HttpStatus.BAD_REQUEST, "error.book.relevanceUnavailable"),
+    BATCH_SIZE(HttpStatus.BAD_REQUEST, "error.book.batch.size"),
+    BULK_FILTER_REQUIRED(HttpStatus.BAD_REQUEST, "error.book.bulk.filterRequired"),
+    LOOKUP_SIZE(HttpStatus.BAD_REQUEST, "error.book.lookup.size"),
+    STATS_RANGE(HttpStatus.BAD_REQUEST, "error.book.stats.range"),
+    STATS_TOO_MANY_BUCKETS(HttpStatus.BAD_REQUEST, "error.book.stats.tooManyBuckets"),
+    IMPORT_FILE(HttpStatus.BAD_REQUEST, "error.book.import.file"),
+    IMPORT_HEADER(HttpStatus.BAD_REQUEST, "error.book.import.header"),
+    IMPORT_RUNNING(HttpStatus.CONFLICT, "error.book.import.running"),
+    IMPORT_NOT_FOUND(HttpStatus.NOT_FOUND, "error.book.import.notFound"),
+    SNAPSHOT_FILE(HttpStatus.BAD_REQUEST, "error.book.snapshot.file"),
+    SNAPSHOT_NOT_EMPTY(HttpStatus.CONFLICT, "error.book.snapshot.notEmpty"),
+    SNAPSHOT_CORRUPT(HttpStatus.BAD_REQUEST, "error.book.snapshot.corrupt"),
+    SNAPSHOT_IO(HttpStatus.INTERNAL_SERVER_ERROR, "error.book.snapshot.io"),
+    DATE_RANGE(HttpStatus.BAD_REQUEST, "error.book.dateRange"),
+    DATE_FORMAT(HttpStatus.BAD_REQUEST, "error.book.dateFormat"),
+    MALFORMED_REQUEST(HttpStatus.BAD_REQUEST, "error.request.malformed"),
+    SERVER_BUSY(HttpStatus.SERVICE_UNAVAILABLE, "error.server.busy");
+
+    private final HttpStatus status;
+
+    private final String messageCode;
+
+    BookError(HttpStatus status, String messageCode) {
+        this.status = status;
+        this.messageCode = messageCode;
+    }
+}
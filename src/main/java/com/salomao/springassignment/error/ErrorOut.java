@@ -0,0 +1,15 @@
+package com.salomao.springassignment.error;
+
+import java.time.Instant;
+
+/**
+ * Body of an error response, with the fields of Spring Boot's error responses
+ *
+ * @param timestamp time of the error
+ * @param status    status code
+ * @param error     reason phrase of the status
+ * @param message   message in the locale of the request
+ * @param path      path of the request
+ */
+public record ErrorOut(Instant timestamp, int status, String error, String message, String path) {
+}
@@ -1,21 +1,45 @@
 package com.salomao.springassignment.error.exception;
 
-import lombok.Data;
-import lombok.EqualsAndHashCode;
+import com.salomao.springassignment.error.BookError;
+import lombok.Getter;
 import org.springframework.http.HttpStatus;
 
 import java.io.Serial;
 import java.io.Serializable;
 
-@EqualsAndHashCode(callSuper = true)
-@Data
+/**
+ * Error of the book API, answered with the status and the message of its BookError by BookErrorHandler.
+ * <p>
+ * These exceptions are expected outcomes such as a missing book, not bugs, so they don't capture a stack trace:
+ * filling it in dominates the cost of throwing, and a 404 should cost about as much as a 200
+ */
+@Getter
 public class ResponseException extends Exception implements Serializable {
 
     @Serial
     private static final long serialVersionUID = 4821234912274751946L;
 
-    private final HttpStatus code;
+    private final BookError error;
 
-    private final String message;
+    /**
+     * Value of the placeholder of the message, such as the id of a missing book, or null
+     */
+    private final Serializable argument;
 
+    public ResponseException(BookError error) {
+        this(error, null);
+    }
+
+    public ResponseException(BookError error, Serializable argument) {
+        super(error.getMessageCode(), null, false, false);
+        this.error = error;
+        this.argument = argument;
+    }
+
+    /**
+     * @return status of the response
+     */
+    public HttpStatus getCode() {
+        return error.getStatus();
+    }
 }
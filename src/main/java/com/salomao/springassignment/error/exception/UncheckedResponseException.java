@@ -0,0 +1,22 @@
+package com.salomao.springassignment.error.exception;
+
+import java.io.Serial;
+
+/**
+ * Carries a ResponseException out of code that can't throw checked exceptions, such as the work BookRequestExecutor
+ * runs on its pool. Stackless like the exception it wraps
+ */
+public class UncheckedResponseException extends RuntimeException {
+
+    @Serial
+    private static final long serialVersionUID = -2318874305129470617L;
+
+    public UncheckedResponseException(ResponseException cause) {
+        super(cause.getMessage(), cause, false, false);
+    }
+
+    @Override
+    public synchronized ResponseException getCause() {
+        return (ResponseException) super.getCause();
+    }
+}
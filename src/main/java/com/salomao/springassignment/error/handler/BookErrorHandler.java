@@ -0,0 +1,129 @@
+package com.salomao.springassignment.error.handler;
+
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.ErrorOut;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.error.exception.UncheckedResponseException;
+import com.salomao.springassignment.metrics.BookMetrics;
+import com.salomao.springassignment.web.controller.BookController;
+import com.salomao.springassignment.web.controller.BookImportController;
+import com.salomao.springassignment.web.message.BookMessages;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Answers the errors of the book API with their status and a message in the locale of the request, written straight
+ * to the response instead of forwarding to the /error page.
+ * <p>
+ * Errors are classified by type, never by the text of exception messages. Every error is counted in BookMetrics, but
+ * only logged at debug level: at info level, or warn for server errors, each error code is logged on its first
+ * occurrence and then once per book.errors.log-every occurrences, so a client hammering a missing book doesn't flood
+ * the log.
+ * <p>
+ * Only exceptions of the book controllers are answered here, anything else is left to the default handling
+ */
+@Slf4j
+@Order(Ordered.HIGHEST_PRECEDENCE)
+@ControllerAdvice(assignableTypes = {BookController.class, BookImportController.class})
+public class BookErrorHandler {
+
+    private final BookMessages messages;
+
+    private final BookMetrics bookMetrics;
+
+    private final int logEvery;
+
+    private final AtomicLongArray occurrences = new AtomicLongArray(BookError.values().length);
+
+    public BookErrorHandler(BookMessages messages, BookMetrics bookMetrics, BookProperties bookProperties) {
+        this.messages = messages;
+        this.bookMetrics = bookMetrics;
+        this.logEvery = Math.max(1, bookProperties.getErrors().getLogEvery());
+    }
+
+    @ExceptionHandler(ResponseException.class)
+    public ResponseEntity<ErrorOut> handleResponseException(ResponseException e, HttpServletRequest request) {
+        return respond(e.getError(), messages.get(e, request.getLocale()), null, request);
+    }
+
+    /**
+     * Handles errors of work that can't throw checked exceptions. A streamed export failing before its first byte,
+     * on a malformed filter for instance, has already set the content type and disposition of the export on the
+     * response, so its error is answered as inline JSON instead
+     *
+     * @param e        UncheckedResponseException to be handled
+     * @param request  HttpServletRequest
+     * @param response HttpServletResponse, not committed yet
+     * @return ResponseEntity with the status of the wrapped error
+     */
+    @ExceptionHandler(UncheckedResponseException.class)
+    public ResponseEntity<ErrorOut> handleUncheckedResponseException(UncheckedResponseException e,
+                                                                     HttpServletRequest request,
+                                                                     HttpServletResponse response) {
+        ResponseEntity<ErrorOut> answer = handleResponseException(e.getCause(), request);
+        if (response.getContentType() == null) {
+            return answer;
+        }
+        return ResponseEntity.status(answer.getStatusCode())
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.inline().build().toString())
+                .body(answer.getBody());
+    }
+
+    /**
+     * Handles HttpMessageNotReadableException, especially if thrown when the date format is incorrect
+     *
+     * @param e       HttpMessageNotReadableException to be handled
+     * @param request HttpServletRequest
+     * @return ResponseEntity with StatusCode 400 BAD REQUEST
+     */
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<ErrorOut> handleHttpMessageNotReadableException(HttpMessageNotReadableException e,
+                                                                          HttpServletRequest request) {
+        BookError error = e.getCause() instanceof MismatchedInputException mismatch
+                && mismatch.getTargetType() == LocalDate.class ? BookError.DATE_FORMAT : BookError.MALFORMED_REQUEST;
+        return respond(error, messages.get(error.getMessageCode(), request.getLocale()), e, request);
+    }
+
+    private ResponseEntity<ErrorOut> respond(BookError error, String message, Exception cause,
+                                             HttpServletRequest request) {
+        bookMetrics.recordError(error);
+        log(error, message, cause, request);
+        HttpStatus status = error.getStatus();
+        return ResponseEntity.status(status)
+                .body(new ErrorOut(Instant.now(), status.value(), status.getReasonPhrase(), message,
+                        request.getRequestURI()));
+    }
+
+    private void log(BookError error, String message, Exception cause, HttpServletRequest request) {
+        long occurrence = occurrences.incrementAndGet(error.ordinal());
+        if (occurrence == 1 || occurrence % logEvery == 0) {
+            if (error.getStatus().is5xxServerError()) {
+                log.warn("{} {} {}: {} ({} occurrences)", error, request.getMethod(), request.getRequestURI(),
+                        message, occurrence, cause);
+            } else {
+                log.info("{} {} {}: {} ({} occurrences)", error, request.getMethod(), request.getRequestURI(),
+                        message, occurrence, cause);
+            }
+        } else if (log.isDebugEnabled()) {
+            log.debug("{} {} {}: {}", error, request.getMethod(), request.getRequestURI(), message, cause);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.salomao.springassignment.error.handler;
 
+import com.salomao.springassignment.metrics.BookMetrics;
+import lombok.RequiredArgsConstructor;
 import org.springframework.core.Ordered;
 import org.springframework.core.annotation.Order;
 import org.springframework.validation.BindingResult;
@@ -20,12 +22,16 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
  */
 @Order(Ordered.HIGHEST_PRECEDENCE)
 @ControllerAdvice
+@RequiredArgsConstructor
 public class MethodArgumentNotValidExceptionHandler {
 
+    private final BookMetrics bookMetrics;
+
     @ResponseStatus(BAD_REQUEST)
     @ResponseBody
     @ExceptionHandler(MethodArgumentNotValidException.class)
     public Error methodArgumentNotValidException(MethodArgumentNotValidException ex) {
+        bookMetrics.recordValidationError();
         BindingResult result = ex.getBindingResult();
         List<FieldError> fieldErrors = result.getFieldErrors();
         return processFieldErrors(fieldErrors);
@@ -0,0 +1,121 @@
+package com.salomao.springassignment.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads a CSV file through a NIO channel and cuts it into chunks of whole records without decoding it, so decoding
+ * and parsing of the chunks can run in parallel. Only quotes and line feeds are inspected here: a line feed inside a
+ * quoted field does not end a record
+ */
+public class CsvChunkReader implements Closeable {
+
+    private final FileChannel channel;
+
+    private final ByteBuffer buffer;
+
+    private final int recordsPerChunk;
+
+    private byte[] pending = new byte[8192];
+
+    private int pendingLength;
+
+    private int pendingRecords;
+
+    private boolean quoted;
+
+    private long offset;
+
+    private long nextRecord;
+
+    /**
+     * @param file            CSV file
+     * @param offset          file offset of the first record to be read
+     * @param firstRecord     number of the first record to be read
+     * @param recordsPerChunk number of records per chunk
+     * @param bufferSize      size of the read buffer
+     * @throws IOException if the file can't be opened
+     */
+    public CsvChunkReader(Path file, long offset, long firstRecord, int recordsPerChunk, int bufferSize)
+            throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.channel.position(offset);
+        this.buffer = ByteBuffer.allocate(bufferSize).flip();
+        this.recordsPerChunk = recordsPerChunk;
+        this.offset = offset;
+        this.nextRecord = firstRecord;
+    }
+
+    /**
+     * Reads the next chunk
+     *
+     * @return chunk with up to recordsPerChunk records, null at the end of the file
+     * @throws IOException if the file can't be read
+     */
+    public CsvChunk next() throws IOException {
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int read = channel.read(buffer);
+                buffer.flip();
+                if (read < 0) {
+                    // the last record may not end with a line feed
+                    return pendingLength > 0 ? emit(pendingRecords + 1) : null;
+                }
+            }
+            byte[] array = buffer.array();
+            int start = buffer.position();
+            int limit = buffer.limit();
+            for (int i = start; i < limit; i++) {
+                byte b = array[i];
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted && ++pendingRecords == recordsPerChunk) {
+                    append(array, start, i + 1);
+                    buffer.position(i + 1);
+                    return emit(pendingRecords);
+                }
+            }
+            append(array, start, limit);
+            buffer.position(limit);
+        }
+    }
+
+    private void append(byte[] array, int from, int to) {
+        int length = to - from;
+        if (pendingLength + length > pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(pending.length * 2, pendingLength + length));
+        }
+        System.arraycopy(array, from, pending, pendingLength, length);
+        pendingLength += length;
+    }
+
+    private CsvChunk emit(int records) {
+        offset += pendingLength;
+        CsvChunk chunk = new CsvChunk(nextRecord, Arrays.copyOf(pending, pendingLength), offset);
+        nextRecord += records;
+        pendingLength = 0;
+        pendingRecords = 0;
+        return chunk;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Whole records cut from the file, still encoded
+     *
+     * @param firstRecord number of the first record of the chunk
+     * @param bytes       UTF-8 encoded records
+     * @param endOffset   file offset right after the chunk
+     */
+    public record CsvChunk(long firstRecord, byte[] bytes, long endOffset) {
+    }
+}
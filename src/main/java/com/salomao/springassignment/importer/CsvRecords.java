@@ -0,0 +1,83 @@
+package com.salomao.springassignment.importer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Iterates over the records of decoded CSV text. Fields may be quoted, with quotes escaped by doubling them, and
+ * records may end with either LF or CRLF
+ */
+public class CsvRecords {
+
+    private final String text;
+
+    private int position;
+
+    private int recordStart;
+
+    private int recordEnd;
+
+    public CsvRecords(String text) {
+        this.text = text;
+    }
+
+    public boolean hasNext() {
+        return position < text.length();
+    }
+
+    /**
+     * Parses the next record
+     *
+     * @return fields of the record, or null if a quoted field is not terminated
+     */
+    public String[] next() {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean fieldStart = true;
+        int length = text.length();
+        int i = position;
+        recordStart = i;
+        while (i < length) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < length && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                fieldStart = true;
+                i++;
+                continue;
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r' || i + 1 >= length || text.charAt(i + 1) != '\n') {
+                field.append(c);
+            }
+            fieldStart = false;
+            i++;
+        }
+        recordEnd = i > recordStart && text.charAt(i - 1) == '\r' ? i - 1 : i;
+        position = i + 1;
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * @return raw text of the last parsed record, without its line terminator
+     */
+    public String lastRecord() {
+        return text.substring(recordStart, recordEnd);
+    }
+}
@@ -0,0 +1,78 @@
+package com.salomao.springassignment.importer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Optional;
+import java.util.Properties;
+
+/**
+ * Position of an import after its last committed chunk. It is written next to the imported file when the import
+ * starts and after every chunk, so an interrupted import resumes from the chunk it was working on
+ *
+ * @param fileSize   size of the file when the import started, a checkpoint of a file that changed is not used
+ * @param offset     file offset of the first record not yet committed
+ * @param nextRecord number of the first record not yet committed
+ * @param inserted   books inserted so far
+ * @param rejected   rows rejected so far
+ */
+public record ImportCheckpoint(long fileSize, long offset, long nextRecord, long inserted, long rejected) {
+
+    /**
+     * @param file imported file
+     * @return path of the checkpoint of the file
+     */
+    public static Path pathOf(Path file) {
+        return file.resolveSibling(file.getFileName() + ".checkpoint");
+    }
+
+    /**
+     * Reads the checkpoint of a file
+     *
+     * @param file imported file
+     * @return checkpoint, empty if there is none or it belongs to a different version of the file
+     * @throws IOException if the checkpoint can't be read
+     */
+    public static Optional<ImportCheckpoint> read(Path file) throws IOException {
+        Path path = pathOf(file);
+        if (!Files.exists(path)) {
+            return Optional.empty();
+        }
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        ImportCheckpoint checkpoint = new ImportCheckpoint(
+                Long.parseLong(properties.getProperty("fileSize")),
+                Long.parseLong(properties.getProperty("offset")),
+                Long.parseLong(properties.getProperty("nextRecord")),
+                Long.parseLong(properties.getProperty("inserted")),
+                Long.parseLong(properties.getProperty("rejected")));
+        return checkpoint.fileSize() == Files.size(file) ? Optional.of(checkpoint) : Optional.empty();
+    }
+
+    /**
+     * Replaces the checkpoint of a file atomically
+     *
+     * @param file imported file
+     * @throws IOException if the checkpoint can't be written
+     */
+    public void write(Path file) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("fileSize", String.valueOf(fileSize));
+        properties.setProperty("offset", String.valueOf(offset));
+        properties.setProperty("nextRecord", String.valueOf(nextRecord));
+        properties.setProperty("inserted", String.valueOf(inserted));
+        properties.setProperty("rejected", String.valueOf(rejected));
+        Path path = pathOf(file);
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, null);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
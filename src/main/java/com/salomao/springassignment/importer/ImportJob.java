@@ -0,0 +1,103 @@
+package com.salomao.springassignment.importer;
+
+import lombok.Getter;
+
+import java.nio.file.Path;
+
+/**
+ * Progress of a single import. Updated by the thread running the import only, read by anyone
+ */
+@Getter
+public class ImportJob {
+
+    public enum Status {
+        QUEUED, RUNNING, COMPLETED, FAILED
+    }
+
+    private final String id;
+
+    private final Path file;
+
+    private final long totalBytes;
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile long bytesRead;
+
+    private volatile long rowsRead;
+
+    private volatile long inserted;
+
+    private volatile long rejected;
+
+    /**
+     * Rows already committed by a previous run when the import resumed from a checkpoint
+     */
+    private volatile long resumedRows;
+
+    private volatile long startedAt;
+
+    private volatile long finishedAt;
+
+    /**
+     * Message code of the failure, null unless the import failed
+     */
+    private volatile String error;
+
+    public ImportJob(String id, Path file, long totalBytes) {
+        this.id = id;
+        this.file = file;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * @return path of the report of rejected rows
+     */
+    public Path getReport() {
+        return file.resolveSibling(file.getFileName() + ".rejected.csv");
+    }
+
+    /**
+     * @return rows read per second since the import started, over the rows read by this run only
+     */
+    public long getRowsPerSecond() {
+        long end = finishedAt > 0 ? finishedAt : System.currentTimeMillis();
+        long elapsed = end - startedAt;
+        return startedAt == 0 || elapsed <= 0 ? 0 : (rowsRead - resumedRows) * 1000 / elapsed;
+    }
+
+    public void start(ImportCheckpoint checkpoint) {
+        bytesRead = checkpoint.offset();
+        rowsRead = checkpoint.nextRecord() - 1;
+        resumedRows = rowsRead;
+        inserted = checkpoint.inserted();
+        rejected = checkpoint.rejected();
+        startedAt = System.currentTimeMillis();
+        status = Status.RUNNING;
+    }
+
+    public void progress(long bytesRead, long rowsRead, long inserted, long rejected) {
+        this.bytesRead = bytesRead;
+        this.rowsRead = rowsRead;
+        this.inserted = inserted;
+        this.rejected = rejected;
+    }
+
+    public void complete() {
+        finishedAt = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    public void fail(String error) {
+        this.error = error;
+        finishedAt = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    /**
+     * @return true while the import is queued or running
+     */
+    public boolean isActive() {
+        return status == Status.QUEUED || status == Status.RUNNING;
+    }
+}
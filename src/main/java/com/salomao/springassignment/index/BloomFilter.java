@@ -0,0 +1,99 @@
+package com.salomao.springassignment.index;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Thread safe Bloom filter of strings. Answers 'definitely absent' or 'maybe present' using a fixed amount of
+ * memory, the false positive rate grows once more values than expected are added
+ */
+public class BloomFilter {
+
+    private static final double LN2 = Math.log(2);
+
+    /**
+     * Bit indexes are derived from non-negative ints, so more than 2^31 bits would never be used
+     */
+    private static final int MAX_WORDS = 1 << 25;
+
+    private final AtomicLongArray words;
+
+    private final long numBits;
+
+    private final int numHashes;
+
+    /**
+     * Creates an empty filter
+     *
+     * @param expectedInsertions number of values the filter is sized for
+     * @param falsePositiveRate  target false positive rate once expectedInsertions values were added
+     */
+    public BloomFilter(long expectedInsertions, double falsePositiveRate) {
+        long expected = Math.max(1, expectedInsertions);
+        long optimalBits = (long) Math.ceil(-expected * Math.log(falsePositiveRate) / (LN2 * LN2));
+        int numWords = (int) Math.min(MAX_WORDS, Math.max(1, (optimalBits + 63) / 64));
+        this.words = new AtomicLongArray(numWords);
+        this.numBits = (long) numWords * 64;
+        this.numHashes = Math.max(1, (int) Math.round((double) numBits / expected * LN2));
+    }
+
+    /**
+     * Adds a value to the filter
+     *
+     * @param value value to be added
+     */
+    public void put(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            long mask = 1L << bit;
+            int word = (int) (bit >>> 6);
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    /**
+     * Checks if a value may have been added to the filter
+     *
+     * @param value value to be checked
+     * @return false if the value was definitely never added, true if it may have been
+     */
+    public boolean mightContain(String value) {
+        long hash = hash(value);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 1; i <= numHashes; i++) {
+            long bit = index(h1 + i * h2);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long index(int combinedHash) {
+        return (combinedHash & Integer.MAX_VALUE) % numBits;
+    }
+
+    /**
+     * 64 bit FNV-1a hash of the string characters, finished with the MurmurHash3 mixer so both halves can be
+     * used as independent hashes
+     */
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,72 @@
+package com.salomao.springassignment.index;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Number of books per publication date, kept in memory to answer date statistics without reading the books. Unlike
+ * the other indexes it is warmed before the application accepts requests: a write racing with the warm query would
+ * be counted twice or not at all, and counts, unlike candidates, are not verified against the database afterwards
+ */
+@Slf4j
+@Component
+public class BookDateHistogram {
+
+    private final BookRepository bookRepo;
+
+    private final BookProperties.Stats config;
+
+    private final DayHistogram histogram;
+
+    private volatile boolean warm;
+
+    public BookDateHistogram(BookRepository bookRepo, BookProperties bookProperties) {
+        this.bookRepo = bookRepo;
+        this.config = bookProperties.getStats();
+        this.histogram = new DayHistogram(LocalDate.of(config.getFirstYear(), 1, 1),
+                LocalDate.of(config.getLastYear(), 12, 31));
+    }
+
+    /**
+     * Counts every stored book, replacing the previous counts
+     */
+    @PostConstruct
+    public void warm() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        warm = false;
+        histogram.clear();
+        for (Object[] row : bookRepo.countByPublishedDate()) {
+            histogram.add((LocalDate) row[0], Math.toIntExact((Long) row[1]));
+        }
+        warm = true;
+        log.info("Publication date histogram warmed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @return the per day counts, empty while disabled or not warm
+     */
+    public Optional<DayHistogram> histogram() {
+        return warm ? Optional.of(histogram) : Optional.empty();
+    }
+
+    public void add(LocalDate publishedDate) {
+        if (config.isEnabled()) {
+            histogram.add(publishedDate, 1);
+        }
+    }
+
+    public void remove(LocalDate publishedDate) {
+        if (config.isEnabled()) {
+            histogram.add(publishedDate, -1);
+        }
+    }
+}
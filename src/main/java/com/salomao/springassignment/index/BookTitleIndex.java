@@ -0,0 +1,113 @@
+package com.salomao.springassignment.index;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Locale;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Trigram index of book titles, used to resolve title searches to a small set of candidate ids instead of
+ * scanning the whole table with a leading wildcard LIKE. Warmed at startup and kept in sync by BookService
+ */
+@Slf4j
+@Component
+public class BookTitleIndex {
+
+    private final BookRepository bookRepo;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BookProperties.Search config;
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    private volatile boolean warm;
+
+    public BookTitleIndex(BookRepository bookRepo, TransactionTemplate transactionTemplate,
+                          BookProperties bookProperties) {
+        this.bookRepo = bookRepo;
+        this.transactionTemplate = transactionTemplate;
+        this.config = bookProperties.getSearch();
+    }
+
+    /**
+     * Indexes every stored title. Until it finishes title searches fall back to the database
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = bookRepo.streamIdsAndTitles()) {
+                rows.forEach(row -> index.add((Integer) row[0], (String) row[1]));
+            }
+        });
+        warm = true;
+        log.info("Title index warmed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Resolves the books whose title may contain a fragment
+     *
+     * @param title title fragment informed by the client
+     * @return sorted candidate ids, a superset of the real matches. Empty if the index can't narrow the search:
+     * it isn't warm yet, the fragment is shorter than three characters or has LIKE wildcards, or it matches more
+     * than the configured maximum of candidates
+     */
+    public Optional<int[]> candidates(String title) {
+        if (!warm || title.indexOf('%') >= 0 || title.indexOf('_') >= 0) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(index.search(title, config.getMaxCandidates()));
+    }
+
+    public void add(Integer id, String title) {
+        if (config.isEnabled()) {
+            index.add(id, title);
+        }
+    }
+
+    public void remove(Integer id, String title) {
+        if (config.isEnabled()) {
+            index.remove(id, title);
+        }
+    }
+
+    /**
+     * Scores how well a title matches a searched fragment, ignoring case
+     *
+     * @param title title of a book
+     * @param query searched fragment
+     * @return 4 for the whole title, 3 for a prefix, 2 for the start of a word, 1 for any other match, 0 for no match
+     */
+    public static int relevance(String title, String query) {
+        String normalizedTitle = title.toLowerCase(Locale.ROOT);
+        String normalizedQuery = query.toLowerCase(Locale.ROOT);
+        if (normalizedTitle.equals(normalizedQuery)) {
+            return 4;
+        }
+        if (normalizedTitle.startsWith(normalizedQuery)) {
+            return 3;
+        }
+        int position = normalizedTitle.indexOf(normalizedQuery);
+        if (position < 0) {
+            return 0;
+        }
+        while (position >= 0) {
+            if (!Character.isLetterOrDigit(normalizedTitle.charAt(position - 1))) {
+                return 2;
+            }
+            position = normalizedTitle.indexOf(normalizedQuery, position + 1);
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,118 @@
+package com.salomao.springassignment.index;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * In-memory membership index of book titles and ISBNs. Bloom filters warmed at startup tell when a title or ISBN
+ * is definitely not in use, so most writes skip the uniqueness queries, and a reservation set keeps concurrent
+ * writes of the same title or ISBN apart. The unique constraints of the book table remain the final guard
+ */
+@Slf4j
+@Component
+public class BookUniquenessIndex {
+
+    private final BookRepository bookRepo;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BloomFilter titles;
+
+    private final BloomFilter isbns;
+
+    private final Set<String> reservedTitles = ConcurrentHashMap.newKeySet();
+
+    private final Set<String> reservedIsbns = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean warm;
+
+    public BookUniquenessIndex(BookRepository bookRepo, TransactionTemplate transactionTemplate,
+                               BookProperties bookProperties) {
+        this.bookRepo = bookRepo;
+        this.transactionTemplate = transactionTemplate;
+        BookProperties.Uniqueness config = bookProperties.getUniqueness();
+        this.titles = new BloomFilter(config.getExpectedBooks(), config.getFalsePositiveRate());
+        this.isbns = new BloomFilter(config.getExpectedBooks(), config.getFalsePositiveRate());
+    }
+
+    /**
+     * Loads every stored title and ISBN into the filters. Until it finishes every value is reported as maybe in use
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        long start = System.currentTimeMillis();
+        transactionTemplate.executeWithoutResult(status -> {
+            try (Stream<Object[]> rows = bookRepo.streamTitlesAndIsbns()) {
+                rows.forEach(row -> add((String) row[0], (String) row[1]));
+            }
+        });
+        warm = true;
+        log.info("Uniqueness index warmed in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * @param title title to be checked
+     * @return false if no stored book has the title, true if one may have it
+     */
+    public boolean mightContainTitle(String title) {
+        return !warm || titles.mightContain(title);
+    }
+
+    /**
+     * @param isbn ISBN to be checked
+     * @return false if no stored book has the ISBN, true if one may have it
+     */
+    public boolean mightContainIsbn(String isbn) {
+        return !warm || isbns.mightContain(isbn);
+    }
+
+    /**
+     * Records the title and ISBN of a stored book
+     *
+     * @param title title of the book
+     * @param isbn  ISBN of the book
+     */
+    public void add(String title, String isbn) {
+        titles.put(title);
+        isbns.put(isbn);
+    }
+
+    /**
+     * Reserves a title and ISBN for a write in progress
+     *
+     * @param title title to be written
+     * @param isbn  ISBN to be written
+     * @return true if both were reserved, false if another write is using one of them. That write may still fail, so
+     * a failed reservation says nothing about the values being in use
+     */
+    public boolean reserve(String title, String isbn) {
+        if (!reservedTitles.add(title)) {
+            return false;
+        }
+        if (!reservedIsbns.add(isbn)) {
+            reservedTitles.remove(title);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Releases a reservation made by {@link #reserve(String, String)}
+     *
+     * @param title reserved title
+     * @param isbn  reserved ISBN
+     */
+    public void release(String title, String isbn) {
+        reservedTitles.remove(title);
+        reservedIsbns.remove(isbn);
+    }
+}
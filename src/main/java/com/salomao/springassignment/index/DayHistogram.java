@@ -0,0 +1,190 @@
+package com.salomao.springassignment.index;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Number of books per day over a fixed window of dates, kept in a Fenwick tree so both updates and the count of any
+ * range take a logarithmic number of steps in the size of the window, whatever the size of the range. Dates outside
+ * the window are only counted in total
+ */
+public class DayHistogram {
+
+    private final long firstDay;
+
+    private final int days;
+
+    private final int[] tree;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private long inside;
+
+    private long outside;
+
+    /**
+     * @param first first date of the window
+     * @param last  last date of the window
+     */
+    public DayHistogram(LocalDate first, LocalDate last) {
+        this.firstDay = first.toEpochDay();
+        this.days = Math.toIntExact(last.toEpochDay() - firstDay + 1);
+        this.tree = new int[days + 1];
+    }
+
+    /**
+     * @param date date to be checked
+     * @return true if books published on the date are counted per day
+     */
+    public boolean covers(LocalDate date) {
+        long day = date.toEpochDay() - firstDay;
+        return day >= 0 && day < days;
+    }
+
+    /**
+     * Adds books published on a date, or removes them with a negative delta
+     *
+     * @param date  publication date
+     * @param delta number of books
+     */
+    public void add(LocalDate date, int delta) {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            if (!covers(date)) {
+                outside += delta;
+                return;
+            }
+            inside += delta;
+            for (int i = (int) (date.toEpochDay() - firstDay) + 1; i <= days; i += i & -i) {
+                tree[i] += delta;
+            }
+        } finally {
+            write.unlock();
+        }
+    }
+
+    /**
+     * Counts the books of consecutive ranges of dates in a single pass. Range i starts at starts[i] and ends the day
+     * before starts[i + 1], the last range ends at end. Every date must be covered by the window
+     *
+     * @param starts first date of every range, ascending
+     * @param end    last date of the last range
+     * @return number of books of every range
+     */
+    public long[] counts(LocalDate[] starts, LocalDate end) {
+        long[] counts = new long[starts.length];
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            long previous = prefix(index(starts[0]) - 1);
+            for (int i = 0; i < starts.length; i++) {
+                int last = i + 1 < starts.length ? index(starts[i + 1]) - 1 : index(end);
+                long current = prefix(last);
+                counts[i] = current - previous;
+                previous = current;
+            }
+        } finally {
+            read.unlock();
+        }
+        return counts;
+    }
+
+    /**
+     * @return earliest date with books inside the window, null if there is none
+     */
+    public LocalDate first() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return inside == 0 ? null : LocalDate.ofEpochDay(firstDay + search(1) - 1);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * @return latest date with books inside the window, null if there is none
+     */
+    public LocalDate last() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return inside == 0 ? null : LocalDate.ofEpochDay(firstDay + search(inside) - 1);
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * @return number of books inside the window
+     */
+    public long inside() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return inside;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * @return number of books, inside the window or not
+     */
+    public long total() {
+        Lock read = lock.readLock();
+        read.lock();
+        try {
+            return inside + outside;
+        } finally {
+            read.unlock();
+        }
+    }
+
+    /**
+     * Removes every count
+     */
+    public void clear() {
+        Lock write = lock.writeLock();
+        write.lock();
+        try {
+            Arrays.fill(tree, 0);
+            inside = 0;
+            outside = 0;
+        } finally {
+            write.unlock();
+        }
+    }
+
+    private int index(LocalDate date) {
+        return (int) (date.toEpochDay() - firstDay) + 1;
+    }
+
+    private long prefix(int index) {
+        long sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return smallest index whose prefix count reaches the target
+     */
+    private int search(long target) {
+        int position = 0;
+        long remaining = target;
+        for (int step = Integer.highestOneBit(days); step > 0; step >>= 1) {
+            int next = position + step;
+            if (next <= days && tree[next] < remaining) {
+                position = next;
+                remaining -= tree[next];
+            }
+        }
+        return position + 1;
+    }
+}
@@ -0,0 +1,181 @@
+package com.salomao.springassignment.index;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Inverted index from the case-insensitive character trigrams of a text to the sorted ids of the entries containing
+ * them. A search returns every id whose text may contain a fragment, which is a superset of the real matches since
+ * the trigrams of the fragment may appear in the text out of order
+ */
+public class TrigramIndex {
+
+    private static final int GRAM = 3;
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indexes a text
+     *
+     * @param id   id of the entry
+     * @param text text of the entry
+     */
+    public void add(int id, String text) {
+        long[] grams = trigrams(text);
+        lock.writeLock().lock();
+        try {
+            for (long gram : grams) {
+                postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a text indexed by {@link #add(int, String)}
+     *
+     * @param id   id of the entry
+     * @param text text the entry was indexed with
+     */
+    public void remove(int id, String text) {
+        long[] grams = trigrams(text);
+        lock.writeLock().lock();
+        try {
+            for (long gram : grams) {
+                PostingList ids = postings.get(gram);
+                if (ids != null && ids.remove(id) && ids.size() == 0) {
+                    postings.remove(gram);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the entries that may contain a fragment
+     *
+     * @param fragment      text to be searched, at least three characters long
+     * @param maxCandidates largest number of ids worth returning
+     * @return sorted candidate ids, or null if the fragment is too short or matches more than maxCandidates entries
+     */
+    public int[] search(String fragment, int maxCandidates) {
+        if (fragment.length() < GRAM) {
+            return null;
+        }
+        long[] grams = trigrams(fragment);
+        int[] candidates;
+        lock.readLock().lock();
+        try {
+            PostingList[] lists = new PostingList[grams.length];
+            for (int i = 0; i < grams.length; i++) {
+                lists[i] = postings.get(grams[i]);
+                if (lists[i] == null) {
+                    return new int[0];
+                }
+            }
+            Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+            candidates = lists[0].toArray();
+            for (int i = 1; i < lists.length && candidates.length > 0; i++) {
+                candidates = lists[i].retainAll(candidates);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return candidates.length > maxCandidates ? null : candidates;
+    }
+
+    /**
+     * @return the distinct trigrams of the lower cased text, each packed in a long
+     */
+    private static long[] trigrams(String text) {
+        String normalized = text.toLowerCase(Locale.ROOT);
+        if (normalized.length() < GRAM) {
+            return new long[0];
+        }
+        long[] grams = new long[normalized.length() - GRAM + 1];
+        for (int i = 0; i < grams.length; i++) {
+            grams[i] = ((long) normalized.charAt(i) << 32)
+                    | ((long) normalized.charAt(i + 1) << 16)
+                    | normalized.charAt(i + 2);
+        }
+        return Arrays.stream(grams).sorted().distinct().toArray();
+    }
+
+    /**
+     * Growable sorted array of ids. Ids are mostly added in increasing order, which appends in constant time
+     */
+    private static class PostingList {
+
+        private int[] ids = new int[4];
+
+        private int size;
+
+        int size() {
+            return size;
+        }
+
+        void add(int id) {
+            if (size > 0 && ids[size - 1] >= id) {
+                int position = Arrays.binarySearch(ids, 0, size, id);
+                if (position >= 0) {
+                    return;
+                }
+                insert(-position - 1, id);
+                return;
+            }
+            insert(size, id);
+        }
+
+        boolean remove(int id) {
+            int position = Arrays.binarySearch(ids, 0, size, id);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ids, position + 1, ids, position, size - position - 1);
+            size--;
+            return true;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(ids, size);
+        }
+
+        /**
+         * @param candidates sorted ids, usually much fewer than the ones in this list
+         * @return the candidates that are also in this list
+         */
+        int[] retainAll(int[] candidates) {
+            int[] retained = new int[candidates.length];
+            int count = 0;
+            int from = 0;
+            for (int candidate : candidates) {
+                int position = Arrays.binarySearch(ids, from, size, candidate);
+                if (position >= 0) {
+                    retained[count++] = candidate;
+                    from = position + 1;
+                } else {
+                    from = -position - 1;
+                }
+            }
+            return Arrays.copyOf(retained, count);
+        }
+
+        private void insert(int position, int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + (size >> 1) + 1);
+            }
+            System.arraycopy(ids, position, ids, position + 1, size - position);
+            ids[position] = id;
+            size++;
+        }
+    }
+}
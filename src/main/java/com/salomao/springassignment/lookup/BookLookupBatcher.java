@@ -0,0 +1,156 @@
+package com.salomao.springassignment.lookup;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.metrics.BookMetrics;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coalesces concurrent single book lookups into one IN query, in the manner of a data loader. A lookup arriving while
+ * no query is running is read right away, so a lone cache miss never waits for the window. Lookups arriving while a
+ * query is running are collected instead: the first one schedules the flush of a batch at the end of the coalescing
+ * window, lookups arriving meanwhile join the batch, and the flush reads it with a single query whose books complete
+ * the pending result of every lookup. A batch that reaches the maximum size is flushed at once.
+ * <p>
+ * Lookups only register a pending result and never wait here: they are called from within the compute of the book
+ * cache, which holds a lock of the cache until it returns. Flushes run on a small pool of their own and callers wait
+ * for the result once they are out of the cache. Lookups of the same id in a batch share its result
+ */
+@Component
+public class BookLookupBatcher {
+
+    private final BookRepository bookRepo;
+
+    private final BookProperties.Lookup config;
+
+    private final BookMetrics bookMetrics;
+
+    private final ThreadPoolTaskScheduler flusher;
+
+    private final Object lock = new Object();
+
+    /**
+     * Batch collecting lookups, null if no lookup is waiting for the window. Guarded by lock
+     */
+    private Batch open;
+
+    /**
+     * Number of queries running. Guarded by lock
+     */
+    private int reading;
+
+    public BookLookupBatcher(BookRepository bookRepo, BookProperties bookProperties, BookMetrics bookMetrics) {
+        this.bookRepo = bookRepo;
+        this.config = bookProperties.getLookup();
+        this.bookMetrics = bookMetrics;
+        this.flusher = new ThreadPoolTaskScheduler();
+        flusher.setPoolSize(config.getFlushThreads());
+        flusher.setThreadNamePrefix("book-lookup-");
+        flusher.initialize();
+    }
+
+    /**
+     * Looks a book up, sharing the query with the concurrent lookups of the same window
+     *
+     * @param id book id
+     * @return pending BookRecord, completed with empty if the book doesn't exist or with the exception of the query
+     */
+    public CompletableFuture<Optional<BookRecordOut>> load(Integer id) {
+        long window = config.getCoalesceWindow().toNanos();
+        if (window <= 0) {
+            bookMetrics.recordLookupBatch(1);
+            return CompletableFuture.completedFuture(bookRepo.findRecordById(id));
+        }
+        Batch batch;
+        CompletableFuture<Optional<BookRecordOut>> book;
+        boolean opened = false;
+        boolean readNow = false;
+        synchronized (lock) {
+            if (open == null && reading == 0) {
+                // no query to wait for, nothing would share this one
+                batch = new Batch();
+                readNow = true;
+            } else {
+                if (open == null) {
+                    open = new Batch();
+                    opened = true;
+                }
+                batch = open;
+            }
+            book = batch.books.computeIfAbsent(id, key -> new CompletableFuture<>());
+            if (batch == open && batch.books.size() >= config.getMaxBatchSize()) {
+                open = null;
+                readNow = true;
+            }
+            if (readNow) {
+                reading++;
+            }
+        }
+        if (readNow) {
+            flusher.execute(() -> read(batch));
+        } else if (opened) {
+            flusher.getScheduledExecutor().schedule(() -> flush(batch), window, TimeUnit.NANOSECONDS);
+        }
+        return book;
+    }
+
+    /**
+     * Reads a batch at the end of its window, unless it was already read because it filled up
+     */
+    private void flush(Batch batch) {
+        synchronized (lock) {
+            if (open != batch) {
+                return;
+            }
+            open = null;
+            reading++;
+        }
+        read(batch);
+    }
+
+    /**
+     * Reads a batch, counted in reading by the caller. The query is no longer counted once it returns, before the
+     * lookups are completed, so the next lookup of a caller doesn't wait for a window. Every pending result is
+     * completed whatever the query throws, errors included, so no lookup waits forever
+     */
+    private void read(Batch batch) {
+        List<BookRecordOut> books;
+        try {
+            books = bookRepo.findRecordsByIdIn(List.copyOf(batch.books.keySet()));
+        } catch (Throwable e) {
+            batch.books.values().forEach(book -> book.completeExceptionally(e));
+            return;
+        } finally {
+            synchronized (lock) {
+                reading--;
+            }
+        }
+        Map<Integer, BookRecordOut> found = new HashMap<>();
+        books.forEach(book -> found.put(book.id(), book));
+        batch.books.forEach((id, book) -> book.complete(Optional.ofNullable(found.get(id))));
+        bookMetrics.recordLookupBatch(batch.books.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flusher.shutdown();
+    }
+
+    private static class Batch {
+
+        /**
+         * Pending result of every id of the batch. Only modified while the batch is open
+         */
+        private final Map<Integer, CompletableFuture<Optional<BookRecordOut>>> books = new HashMap<>();
+    }
+}
@@ -0,0 +1,124 @@
+package com.salomao.springassignment.metrics;
+
+import com.salomao.springassignment.error.BookError;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+/**
+ * Business metrics of the book API. Request latencies and repository call latencies are recorded by Spring Boot as
+ * http.server.requests and spring.data.repository.invocations
+ */
+@Component
+public class BookMetrics {
+
+    private static final String ERRORS = "book.errors";
+
+    private final Counter notFound;
+
+    private final Counter duplicate;
+
+    private final Counter validation;
+
+    private final Counter badRequest;
+
+    private final Counter conflict;
+
+    private final Counter busy;
+
+    private final Counter serverError;
+
+    private final DistributionSummary listResults;
+
+    private final DistributionSummary lookupBatches;
+
+    public BookMetrics(MeterRegistry registry) {
+        this.notFound = errorCounter(registry, "not_found");
+        this.duplicate = errorCounter(registry, "duplicate");
+        this.validation = errorCounter(registry, "validation");
+        this.badRequest = errorCounter(registry, "bad_request");
+        this.conflict = errorCounter(registry, "conflict");
+        this.busy = errorCounter(registry, "busy");
+        this.serverError = errorCounter(registry, "server_error");
+        this.listResults = DistributionSummary.builder("book.list.results")
+                .description("Number of books returned by a page of GET /book")
+                .baseUnit("books")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.lookupBatches = DistributionSummary.builder("book.lookup.batch")
+                .description("Number of single book lookups sharing a query, see BookLookupBatcher")
+                .baseUnit("books")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static Counter errorCounter(MeterRegistry registry, String type) {
+        return Counter.builder(ERRORS)
+                .description("Requests or batch items answered with an error by the book API")
+                .tag("type", type)
+                .register(registry);
+    }
+
+    /**
+     * Counts a request answered with an error. Errors are counted by the status they are answered with, only
+     * duplicates and validation errors are told apart from the other 400 BAD REQUEST answers, so server faults never
+     * count as client errors
+     *
+     * @param error error of the response
+     */
+    public void recordError(BookError error) {
+        switch (error) {
+            case BOOK_NOT_UNIQUE -> duplicate.increment();
+            case DATE_RANGE, DATE_FORMAT, MALFORMED_REQUEST -> validation.increment();
+            default -> counterOf(error.getStatus()).increment();
+        }
+    }
+
+    private Counter counterOf(HttpStatus status) {
+        return switch (status) {
+            case NOT_FOUND -> notFound;
+            case CONFLICT, PRECONDITION_FAILED -> conflict;
+            case SERVICE_UNAVAILABLE -> busy;
+            default -> status.is5xxServerError() ? serverError : badRequest;
+        };
+    }
+
+    /**
+     * Counts a rejected batch item by its message code
+     *
+     * @param messageCode message code of the rejection, as carried by BookBatchItemOut
+     */
+    public void recordError(String messageCode) {
+        switch (messageCode) {
+            case "error.book.notFound" -> notFound.increment();
+            case "error.book.notUnique" -> duplicate.increment();
+            case "error.book.preconditionFailed", "error.book.conflict" -> conflict.increment();
+            case "error.book.title.notNull", "error.book.isbn.notNull", "error.book.publishedDate.notNull",
+                    "error.book.batch.nullItem" -> validation.increment();
+            default -> badRequest.increment();
+        }
+    }
+
+    /**
+     * Counts a request rejected by bean validation or by malformed parameters
+     */
+    public void recordValidationError() {
+        validation.increment();
+    }
+
+    /**
+     * @param size number of books in a page returned by GET /book
+     */
+    public void recordListResults(int size) {
+        listResults.record(size);
+    }
+
+    /**
+     * @param size number of single book lookups answered by one query
+     */
+    public void recordLookupBatch(int size) {
+        lookupBatches.record(size);
+    }
+}
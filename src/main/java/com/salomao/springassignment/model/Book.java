@@ -6,11 +6,13 @@ import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Version;
 import java.io.Serial;
 import java.io.Serializable;
 import java.time.LocalDate;
 
-import static javax.persistence.GenerationType.IDENTITY;
+import static javax.persistence.GenerationType.SEQUENCE;
 
 @Data
 @Entity
@@ -19,16 +21,29 @@ public class Book implements Serializable {
     @Serial
     private static final long serialVersionUID = 2428697559413907155L;
 
+    /**
+     * Ids handed out per book_seq value. Writers allocating ids themselves take the block ending at the value
+     */
+    public static final int ID_ALLOCATION_SIZE = 50;
+
     @Id
-    @GeneratedValue(strategy = IDENTITY)
+    @GeneratedValue(strategy = SEQUENCE, generator = "book_seq")
+    @SequenceGenerator(name = "book_seq", sequenceName = "book_seq", allocationSize = ID_ALLOCATION_SIZE)
     private Integer id;
 
-    @Column(nullable = false)
+    @Column(nullable = false, unique = true)
     private String title;
 
-    @Column(nullable = false)
+    @Column(nullable = false, unique = true)
     private String isbn;
 
     @Column(name = "published_date", nullable = false)
     private LocalDate publishedDate;
+
+    /**
+     * Incremented on every update, guards updates and deletes against lost updates
+     */
+    @Version
+    @Column(nullable = false)
+    private Long version;
 }
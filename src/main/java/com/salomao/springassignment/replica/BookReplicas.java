@@ -0,0 +1,249 @@
+package com.salomao.springassignment.replica;
+
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.web.dto.BookChangeOut;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Date;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process H2 databases standing in for read replicas of the primary. Each replica is copied from the primary once
+ * the application is ready and then fed by a single thread replaying the change log, so it trails the primary like a
+ * replica fed by replication would. Every replica records the sequence of the last change it applied, which tells
+ * whether it has caught up with the primary.
+ * <p>
+ * Changes are replayed in change log order. Updates only replace older versions of a book, so an update published
+ * after a newer one is skipped. A replica that fails to apply a change, or missed changes overwritten in the log, is
+ * copied again
+ */
+@Slf4j
+public class BookReplicas implements AutoCloseable {
+
+    private static final String INSERT = "INSERT INTO book (id, title, isbn, published_date, version) "
+            + "SELECT ?, ?, ?, ?, ? FROM DUAL WHERE NOT EXISTS (SELECT 1 FROM book WHERE id = ?)";
+
+    private static final String UPDATE = "UPDATE book SET title = ?, isbn = ?, published_date = ?, version = ? "
+            + "WHERE id = ? AND version < ?";
+
+    private static final String DELETE = "DELETE FROM book WHERE id = ?";
+
+    private final DataSource primary;
+
+    private final BookChangeLog changeLog;
+
+    private final BookProperties.Replicas config;
+
+    private final List<Replica> replicas = new ArrayList<>();
+
+    private final ThreadPoolTaskExecutor applier;
+
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    private final AtomicInteger next = new AtomicInteger();
+
+    public BookReplicas(DataSource primary, BookChangeLog changeLog, BookProperties bookProperties) {
+        this.primary = primary;
+        this.changeLog = changeLog;
+        this.config = bookProperties.getReplicas();
+        for (int i = 0; i < config.getCount(); i++) {
+            HikariDataSource dataSource = new HikariDataSource();
+            dataSource.setPoolName("book-replica-" + i);
+            dataSource.setJdbcUrl("jdbc:h2:mem:book-replica-" + i + ";LAZY_QUERY_EXECUTION=TRUE;DB_CLOSE_DELAY=-1");
+            dataSource.setUsername("sa");
+            dataSource.setMaximumPoolSize(config.getMaximumPoolSize());
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(dataSource);
+            replicas.add(new Replica(dataSource));
+        }
+        this.applier = new ThreadPoolTaskExecutor();
+        applier.setCorePoolSize(1);
+        applier.setMaxPoolSize(1);
+        applier.setThreadNamePrefix("book-replica-");
+        applier.initialize();
+        changeLog.addListener(this::schedule);
+    }
+
+    /**
+     * Picks a replica that has applied every published change, so a read-only transaction sees every write that
+     * returned before it started, its own included. Replicas are picked in turns.
+     * <p>
+     * Write paths publish their changes before invalidating the cached books, so a lookup missing the cache after
+     * the invalidation never reads a replica without the write, and a stale book loaded from a replica before the
+     * publication is dropped by the invalidation
+     *
+     * @return replica, empty if every replica is behind the primary
+     */
+    public Optional<DataSource> pick() {
+        long latest = changeLog.latest();
+        int start = next.getAndIncrement();
+        for (int i = 0; i < replicas.size(); i++) {
+            Replica replica = replicas.get(Math.floorMod(start + i, replicas.size()));
+            if (replica.applied >= latest) {
+                return Optional.of(replica.dataSource);
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Copies the primary to every replica, on the applier thread. Runs once the application is ready, after any
+     * snapshot was loaded, and must run again after writes that bypass the change log
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void sync() {
+        replicas.forEach(replica -> replica.applied = -1);
+        applier.execute(() -> replicas.forEach(this::copy));
+    }
+
+    /**
+     * @return number of replicas behind the primary
+     */
+    public long lagging() {
+        long latest = changeLog.latest();
+        return replicas.stream().filter(replica -> replica.applied < latest).count();
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) {
+            applier.execute(this::apply);
+        }
+    }
+
+    private void apply() {
+        try {
+            replicas.forEach(this::applyTo);
+        } finally {
+            scheduled.set(false);
+        }
+        long latest = changeLog.latest();
+        if (replicas.stream().anyMatch(replica -> replica.applied >= 0 && replica.applied < latest)) {
+            schedule();
+        }
+    }
+
+    private void applyTo(Replica replica) {
+        if (replica.applied < 0) {
+            return;
+        }
+        BookChangeLog.ChangeBatch batch = changeLog.read(replica.applied, config.getBatchSize());
+        if (batch.gap()) {
+            log.warn("Replica {} missed changes, copying the primary again", replica.dataSource.getPoolName());
+            copy(replica);
+            return;
+        }
+        if (batch.changes().isEmpty()) {
+            return;
+        }
+        awaitDelay(batch.changes().get(batch.changes().size() - 1).at());
+        try {
+            replica.transactionTemplate.executeWithoutResult(status -> batch.changes().forEach(change ->
+                    replay(replica.jdbc, change)));
+            replica.applied = batch.changes().get(batch.changes().size() - 1).sequence();
+        } catch (DataAccessException e) {
+            log.warn("Replica {} could not apply changes, copying the primary again",
+                    replica.dataSource.getPoolName(), e);
+            copy(replica);
+        }
+    }
+
+    private static void replay(JdbcTemplate jdbc, BookChangeOut change) {
+        BookRecordOut book = change.book();
+        switch (change.type()) {
+            case INSERTED -> jdbc.update(INSERT, book.id(), book.title(), book.isbn(),
+                    Date.valueOf(book.publishedDate()), book.version(), book.id());
+            case UPDATED -> jdbc.update(UPDATE, book.title(), book.isbn(), Date.valueOf(book.publishedDate()),
+                    book.version(), book.id(), book.version());
+            case DELETED -> jdbc.update(DELETE, change.id());
+        }
+    }
+
+    /**
+     * Replaces the books of a replica with the ones of the primary. Changes published while copying are replayed
+     * afterwards, which is harmless for the ones the copy already saw
+     */
+    private void copy(Replica replica) {
+        replica.applied = -1;
+        long from = changeLog.latest();
+        long start = System.currentTimeMillis();
+        replica.transactionTemplate.executeWithoutResult(status -> {
+            replica.jdbc.update("DELETE FROM book");
+            List<Object[]> rows = new ArrayList<>(config.getBatchSize());
+            new JdbcTemplate(primary).query("SELECT id, title, isbn, published_date, version FROM book", row -> {
+                rows.add(new Object[]{row.getInt(1), row.getString(2), row.getString(3), row.getDate(4),
+                        row.getLong(5)});
+                if (rows.size() == config.getBatchSize()) {
+                    insertRows(replica.jdbc, rows);
+                }
+            });
+            insertRows(replica.jdbc, rows);
+        });
+        replica.applied = from;
+        log.info("Replica {} copied from the primary in {} ms", replica.dataSource.getPoolName(),
+                System.currentTimeMillis() - start);
+        schedule();
+    }
+
+    private static void insertRows(JdbcTemplate jdbc, List<Object[]> rows) {
+        if (!rows.isEmpty()) {
+            jdbc.batchUpdate("INSERT INTO book (id, title, isbn, published_date, version) VALUES (?, ?, ?, ?, ?)",
+                    rows);
+            rows.clear();
+        }
+    }
+
+    private void awaitDelay(Instant publishedAt) {
+        Duration wait = Duration.between(Instant.now(), publishedAt.plus(config.getApplyDelay()));
+        if (!wait.isNegative() && !wait.isZero()) {
+            try {
+                Thread.sleep(wait.toMillis());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        applier.shutdown();
+        replicas.forEach(replica -> replica.dataSource.close());
+    }
+
+    private static class Replica {
+
+        private final HikariDataSource dataSource;
+
+        private final JdbcTemplate jdbc;
+
+        private final TransactionTemplate transactionTemplate;
+
+        /**
+         * Sequence of the last change applied, -1 while the replica is being copied
+         */
+        private volatile long applied = -1;
+
+        Replica(HikariDataSource dataSource) {
+            this.dataSource = dataSource;
+            this.jdbc = new JdbcTemplate(dataSource);
+            this.transactionTemplate = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.salomao.springassignment.replica;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Optional;
+
+/**
+ * Hands out connections of a replica to read-only transactions and of the primary to everything else. The
+ * transaction must already be known when the connection is taken, so this data source is meant to be wrapped in a
+ * LazyConnectionDataSourceProxy: the transaction manager then starts with a proxy, and the real connection is only
+ * taken by the first statement. Read-only transactions fall back to the primary while every replica is behind it
+ */
+public class BookRoutingDataSource extends AbstractDataSource {
+
+    private static final String ROUTED = "book.datasource.routed";
+
+    private final DataSource primary;
+
+    private final BookReplicas replicas;
+
+    private final Counter writes;
+
+    private final Counter replicaReads;
+
+    private final Counter laggingReads;
+
+    public BookRoutingDataSource(DataSource primary, BookReplicas replicas, MeterRegistry registry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.writes = routedCounter(registry, "primary", "read_write");
+        this.replicaReads = routedCounter(registry, "replica", "read_only");
+        this.laggingReads = routedCounter(registry, "primary", "read_only");
+    }
+
+    private static Counter routedCounter(MeterRegistry registry, String target, String transaction) {
+        return Counter.builder(ROUTED)
+                .description("Connections taken by the book API, by target database and transaction type")
+                .tag("target", target)
+                .tag("transaction", transaction)
+                .register(registry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return target().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return target().getConnection(username, password);
+    }
+
+    private DataSource target() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            return primary;
+        }
+        Optional<DataSource> replica = replicas.pick();
+        if (replica.isPresent()) {
+            replicaReads.increment();
+            return replica.get();
+        }
+        laggingReads.increment();
+        return primary;
+    }
+}
@@ -0,0 +1,54 @@
+package com.salomao.springassignment.repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.Optional;
+
+/**
+ * Position of a book inside a sorted listing, used as the starting point of the next page.
+ * Clients only see it as an opaque token produced by {@link #encode()}
+ *
+ * @param sort          sort the position belongs to
+ * @param id            id of the last book of the page
+ * @param publishedDate published date of the last book of the page, only required for date sorts
+ */
+public record BookKeyset(BookSort sort, Integer id, LocalDate publishedDate) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Encodes the keyset as an url safe token
+     *
+     * @return opaque cursor token
+     */
+    public String encode() {
+        String raw = sort.name() + SEPARATOR + id + SEPARATOR + (publishedDate == null ? "" : publishedDate);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token produced by {@link #encode()}
+     *
+     * @param token opaque cursor token
+     * @return keyset, or empty if the token is malformed
+     */
+    public static Optional<BookKeyset> decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3) {
+                return Optional.empty();
+            }
+            BookSort sort = BookSort.valueOf(parts[0]);
+            LocalDate publishedDate = parts[2].isEmpty() ? null : LocalDate.parse(parts[2]);
+            if (sort.isByPublishedDate() && publishedDate == null) {
+                return Optional.empty();
+            }
+            return Optional.of(new BookKeyset(sort, Integer.valueOf(parts[1]), publishedDate));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+}
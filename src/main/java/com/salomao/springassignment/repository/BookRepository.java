@@ -1,18 +1,127 @@
 package com.salomao.springassignment.repository;
 
 import com.salomao.springassignment.model.Book;
-import org.springframework.data.jpa.domain.Specification;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface BookRepository extends CrudRepository<Book, Integer> {
+public interface BookRepository extends CrudRepository<Book, Integer>, BookRepositoryCustom {
+
+    /**
+     * Reads a single book straight into its DTO, without building a managed entity
+     *
+     * @param id book id
+     * @return BookRecord, or empty if the book doesn't exist
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.salomao.springassignment.web.dto.BookRecordOut("
+            + "b.id, b.title, b.isbn, b.publishedDate, b.version) from Book b where b.id = :id")
+    Optional<BookRecordOut> findRecordById(@Param("id") Integer id);
 
-    List<Book> findAll(Specification<Book> bookSpec);
+    /**
+     * Reads several books straight into their DTOs with a single IN query
+     *
+     * @param ids book ids
+     * @return BookRecords of the existing books, in no particular order
+     */
+    @Transactional(readOnly = true)
+    @Query("select new com.salomao.springassignment.web.dto.BookRecordOut("
+            + "b.id, b.title, b.isbn, b.publishedDate, b.version) from Book b where b.id in :ids")
+    List<BookRecordOut> findRecordsByIdIn(@Param("ids") Collection<Integer> ids);
 
     Optional<Book> findByTitle(String title);
     Optional<Book> findByIsbn(String isbn);
+
+    /**
+     * Streams the title and ISBN of every book, must be consumed inside a transaction and closed after use
+     *
+     * @return Stream of [title, isbn] rows
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.title, b.isbn from Book b")
+    Stream<Object[]> streamTitlesAndIsbns();
+
+    /**
+     * Streams the id and title of every book, must be consumed inside a transaction and closed after use
+     *
+     * @return Stream of [id, title] rows
+     */
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "1000"))
+    @Query("select b.id, b.title from Book b")
+    Stream<Object[]> streamIdsAndTitles();
+
+    /**
+     * Sets the publication date of a set of books in a single statement, bumping their versions. Must be called
+     * inside a transaction
+     *
+     * @param ids           ids of the books
+     * @param publishedDate new publication date
+     * @return number of updated books
+     */
+    @Modifying
+    @Query("update Book b set b.publishedDate = :publishedDate, b.version = b.version + 1 where b.id in :ids")
+    int updatePublishedDateByIdIn(@Param("ids") Collection<Integer> ids,
+                                  @Param("publishedDate") LocalDate publishedDate);
+
+    /**
+     * Deletes a set of books in a single statement. Must be called inside a transaction
+     *
+     * @param ids ids of the books
+     * @return number of deleted books
+     */
+    @Modifying
+    @Query("delete from Book b where b.id in :ids")
+    int deleteByIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * Deletes every book in a single statement. Must be called inside a transaction
+     *
+     * @return number of deleted books
+     */
+    @Modifying
+    @Query("delete from Book b")
+    int deleteAllRows();
+
+    /**
+     * Counts the books of every publication date
+     *
+     * @return List of [publishedDate, count] rows
+     */
+    @Transactional(readOnly = true)
+    @Query("select b.publishedDate, count(b) from Book b group by b.publishedDate")
+    List<Object[]> countByPublishedDate();
+
+    /**
+     * Counts the books of every publication date of a range, using the published_date index
+     *
+     * @param from first date of the range
+     * @param to   last date of the range
+     * @return List of [publishedDate, count] rows, ordered by date
+     */
+    @Transactional(readOnly = true)
+    @Query("select b.publishedDate, count(b) from Book b where b.publishedDate between :from and :to "
+            + "group by b.publishedDate order by b.publishedDate")
+    List<Object[]> countByPublishedDateBetween(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    /**
+     * @return single [earliest publishedDate, latest publishedDate, count] row
+     */
+    @Transactional(readOnly = true)
+    @Query("select min(b.publishedDate), max(b.publishedDate), count(b) from Book b")
+    List<Object[]> summarizePublishedDates();
 }
@@ -0,0 +1,88 @@
+package com.salomao.springassignment.repository;
+
+import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Queries that can't be expressed as Spring Data derived queries. Read queries project straight into BookRecordOut,
+ * so no managed entities are built for them
+ */
+public interface BookRepositoryCustom {
+
+    /**
+     * Returns a single page of books using keyset pagination
+     *
+     * @param bookSpec specification with filters for searching books, may be null
+     * @param sort     sort order of the listing
+     * @param after    position of the last book of the previous page, null for the first page
+     * @param limit    maximum number of books to be returned
+     * @return List of BookRecords placed after the keyset
+     */
+    List<BookRecordOut> findPage(Specification<Book> bookSpec, BookSort sort, BookKeyset after, int limit);
+
+    /**
+     * Counts the books matching a specification
+     *
+     * @param bookSpec specification with filters for searching books, may be null
+     * @return number of matching books
+     */
+    long countMatching(Specification<Book> bookSpec);
+
+    /**
+     * Streams every book matching the specification ordered by id, reading from a database cursor.
+     * The stream must be consumed inside a transaction and closed after use
+     *
+     * @param bookSpec  specification with filters for searching books, may be null
+     * @param fetchSize number of rows fetched from the database per round trip
+     * @return Stream of BookRecords
+     */
+    Stream<BookRecordOut> streamAll(Specification<Book> bookSpec, int fetchSize);
+
+    /**
+     * Persists new books in a single flush, so inserts are sent as JDBC batches, and clears the persistence context
+     * afterwards so large imports don't accumulate managed entities. Must be called inside a transaction
+     *
+     * @param books new books, their ids are filled in
+     */
+    void insertAll(List<Book> books);
+
+    /**
+     * Inserts new books with plain JDBC batches, bypassing the persistence context. Ids are taken from book_seq in
+     * blocks of {@link Book#ID_ALLOCATION_SIZE}, the same way the entity generator does, so both can be used side by
+     * side. Must be called inside a transaction
+     *
+     * @param books valid books to be inserted
+     * @return ids of the inserted books, in the same order
+     */
+    int[] insertRows(List<BookRecordIn> books);
+
+    /**
+     * Inserts books keeping their ids and versions, with plain JDBC batches. Used to load snapshots, book_seq must
+     * be moved past the inserted ids afterwards. Must be called inside a transaction
+     *
+     * @param books books to be inserted
+     */
+    void insertRecords(List<BookRecordOut> books);
+
+    /**
+     * Moves book_seq so the next allocated block starts right after an id
+     *
+     * @param lastId greatest id in use
+     */
+    void restartIds(int lastId);
+
+    /**
+     * Returns the books using any of the titles or ISBNs, in a single query
+     *
+     * @param titles titles to be checked, may be empty
+     * @param isbns  ISBNs to be checked, may be empty
+     * @return List of books having one of the titles or one of the ISBNs
+     */
+    List<Book> findByTitleInOrIsbnIn(Collection<String> titles, Collection<String> isbns);
+}
@@ -0,0 +1,204 @@
+package com.salomao.springassignment.repository;
+
+import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.hibernate.Session;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.criteria.CompoundSelection;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+
+public class BookRepositoryCustomImpl implements BookRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional(readOnly = true)
+    public List<BookRecordOut> findPage(Specification<Book> bookSpec, BookSort sort, BookKeyset after, int limit) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookRecordOut> query = cb.createQuery(BookRecordOut.class);
+        Root<Book> root = query.from(Book.class);
+
+        List<Predicate> predicates = filter(bookSpec, root, query, cb);
+        if (after != null) {
+            predicates.add(sort.after(root, cb, after));
+        }
+        query.select(bookRecord(root, cb))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(sort.orders(root, cb));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public long countMatching(Specification<Book> bookSpec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+
+        query.select(cb.count(root))
+                .where(filter(bookSpec, root, query, cb).toArray(new Predicate[0]));
+
+        return entityManager.createQuery(query).getSingleResult();
+    }
+
+    @Override
+    public Stream<BookRecordOut> streamAll(Specification<Book> bookSpec, int fetchSize) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<BookRecordOut> query = cb.createQuery(BookRecordOut.class);
+        Root<Book> root = query.from(Book.class);
+
+        query.select(bookRecord(root, cb))
+                .where(filter(bookSpec, root, query, cb).toArray(new Predicate[0]))
+                .orderBy(BookSort.ID_ASC.orders(root, cb));
+
+        return entityManager.createQuery(query)
+                .setHint(HINT_FETCH_SIZE, fetchSize)
+                .getResultStream();
+    }
+
+    @Override
+    public void insertAll(List<Book> books) {
+        for (Book book : books) {
+            entityManager.persist(book);
+        }
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Override
+    public int[] insertRows(List<BookRecordIn> books) {
+        int[] ids = allocateIds(books.size());
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO book (id, title, isbn, published_date) VALUES (?, ?, ?, ?)")) {
+                for (int i = 0; i < books.size(); i++) {
+                    BookRecordIn book = books.get(i);
+                    statement.setInt(1, ids[i]);
+                    statement.setString(2, book.title());
+                    statement.setString(3, book.isbn());
+                    statement.setDate(4, Date.valueOf(book.publishedDate()));
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+        return ids;
+    }
+
+    @Override
+    public void insertRecords(List<BookRecordOut> books) {
+        entityManager.unwrap(Session.class).doWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement(
+                    "INSERT INTO book (id, title, isbn, published_date, version) VALUES (?, ?, ?, ?, ?)")) {
+                for (BookRecordOut book : books) {
+                    statement.setInt(1, book.id());
+                    statement.setString(2, book.title());
+                    statement.setString(3, book.isbn());
+                    statement.setDate(4, Date.valueOf(book.publishedDate()));
+                    statement.setLong(5, book.version());
+                    statement.addBatch();
+                }
+                statement.executeBatch();
+            }
+        });
+    }
+
+    @Override
+    @Transactional
+    public void restartIds(int lastId) {
+        // the value v hands out the ids v - ID_ALLOCATION_SIZE + 1 to v, see allocateIds
+        entityManager.createNativeQuery("ALTER SEQUENCE book_seq RESTART WITH " + (lastId + Book.ID_ALLOCATION_SIZE))
+                .executeUpdate();
+    }
+
+    /**
+     * Takes enough book_seq values for the requested number of ids in a single query. Each value v stands for the
+     * ids v - ID_ALLOCATION_SIZE + 1 to v, values below ID_ALLOCATION_SIZE are skipped as the entity generator does
+     */
+    private int[] allocateIds(int count) {
+        int[] ids = new int[count];
+        int filled = 0;
+        while (filled < count) {
+            int blocks = (count - filled + Book.ID_ALLOCATION_SIZE - 1) / Book.ID_ALLOCATION_SIZE;
+            List<?> values = entityManager
+                    .createNativeQuery("SELECT NEXT VALUE FOR book_seq FROM SYSTEM_RANGE(1, :blocks)")
+                    .setParameter("blocks", blocks)
+                    .getResultList();
+            for (Object value : values) {
+                int last = ((Number) value).intValue();
+                if (last < Book.ID_ALLOCATION_SIZE) {
+                    continue;
+                }
+                for (int id = last - Book.ID_ALLOCATION_SIZE + 1; id <= last && filled < count; id++) {
+                    ids[filled++] = id;
+                }
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public List<Book> findByTitleInOrIsbnIn(Collection<String> titles, Collection<String> isbns) {
+        if (titles.isEmpty() && isbns.isEmpty()) {
+            return List.of();
+        }
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Book> query = cb.createQuery(Book.class);
+        Root<Book> root = query.from(Book.class);
+
+        List<Predicate> predicates = new ArrayList<>();
+        if (!titles.isEmpty()) {
+            predicates.add(root.get("title").in(titles));
+        }
+        if (!isbns.isEmpty()) {
+            predicates.add(root.get("isbn").in(isbns));
+        }
+        query.select(root).where(cb.or(predicates.toArray(new Predicate[0])));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    /**
+     * Builds the predicates of the optional specification
+     */
+    private List<Predicate> filter(Specification<Book> bookSpec, Root<Book> root, CriteriaQuery<?> query,
+                                   CriteriaBuilder cb) {
+        List<Predicate> predicates = new ArrayList<>();
+        if (bookSpec != null) {
+            Predicate predicate = bookSpec.toPredicate(root, query, cb);
+            if (predicate != null) {
+                predicates.add(predicate);
+            }
+        }
+        return predicates;
+    }
+
+    /**
+     * Builds the constructor expression projecting a book row into a BookRecordOut
+     */
+    private static CompoundSelection<BookRecordOut> bookRecord(Root<Book> root, CriteriaBuilder cb) {
+        return cb.construct(BookRecordOut.class,
+                root.get("id"), root.get("title"), root.get("isbn"), root.get("publishedDate"),
+                root.get("version"));
+    }
+}
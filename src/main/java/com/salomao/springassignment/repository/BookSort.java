@@ -0,0 +1,74 @@
+package com.salomao.springassignment.repository;
+
+import com.salomao.springassignment.model.Book;
+
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.Order;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Stable sort orders supported by keyset pagination. Every order ends with the id, so the position of a book
+ * in a listing is always unique. RELEVANCE is only available for title searches and is ranked in memory, at the
+ * database level it behaves as ID_ASC
+ */
+public enum BookSort {
+    ID_ASC(false, true),
+    ID_DESC(false, false),
+    PUBLISHED_DATE_ASC(true, true),
+    PUBLISHED_DATE_DESC(true, false),
+    RELEVANCE(false, true);
+
+    private final boolean byPublishedDate;
+
+    private final boolean ascending;
+
+    BookSort(boolean byPublishedDate, boolean ascending) {
+        this.byPublishedDate = byPublishedDate;
+        this.ascending = ascending;
+    }
+
+    /**
+     * Builds the ORDER BY clause for this sort
+     *
+     * @param root book root of the query
+     * @param cb   criteria builder
+     * @return list of orders, always ending with the id
+     */
+    List<Order> orders(Root<Book> root, CriteriaBuilder cb) {
+        Order byId = ascending ? cb.asc(root.get("id")) : cb.desc(root.get("id"));
+        if (!byPublishedDate) {
+            return List.of(byId);
+        }
+        Order byDate = ascending ? cb.asc(root.get("publishedDate")) : cb.desc(root.get("publishedDate"));
+        return List.of(byDate, byId);
+    }
+
+    /**
+     * Builds the predicate matching only the books placed after the given keyset in this sort
+     *
+     * @param root   book root of the query
+     * @param cb     criteria builder
+     * @param keyset position of the last book of the previous page
+     * @return keyset predicate
+     */
+    Predicate after(Root<Book> root, CriteriaBuilder cb, BookKeyset keyset) {
+        Path<Integer> id = root.get("id");
+        Predicate idAfter = ascending ? cb.greaterThan(id, keyset.id()) : cb.lessThan(id, keyset.id());
+        if (!byPublishedDate) {
+            return idAfter;
+        }
+        Path<LocalDate> publishedDate = root.get("publishedDate");
+        Predicate dateAfter = ascending
+                ? cb.greaterThan(publishedDate, keyset.publishedDate())
+                : cb.lessThan(publishedDate, keyset.publishedDate());
+        return cb.or(dateAfter, cb.and(cb.equal(publishedDate, keyset.publishedDate()), idAfter));
+    }
+
+    public boolean isByPublishedDate() {
+        return byPublishedDate;
+    }
+}
@@ -0,0 +1,477 @@
+package com.salomao.springassignment.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.salomao.springassignment.cache.BookCache;
+import com.salomao.springassignment.cache.CatalogueVersion;
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.importer.CsvChunkReader;
+import com.salomao.springassignment.importer.CsvRecords;
+import com.salomao.springassignment.importer.ImportCheckpoint;
+import com.salomao.springassignment.importer.ImportJob;
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.index.BookTitleIndex;
+import com.salomao.springassignment.index.BookUniquenessIndex;
+import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Imports catalogue feeds from CSV files. The file is cut into chunks by a single reader, chunks are decoded, parsed
+ * and validated in parallel, and a single writer checks them for duplicates and inserts them in order with JDBC
+ * batches, one transaction per chunk. A checkpoint is written before the first chunk and after every chunk so an
+ * interrupted import resumes where it stopped, and rejected rows are written to a report next to the file
+ */
+@Service
+@Slf4j
+public class BookImportService {
+
+    private static final long PROGRESS_LOG_INTERVAL_MS = 10_000;
+
+    private final BookRepository bookRepo;
+
+    private final BookService bookService;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BookCache bookCache;
+
+    private final BookUniquenessIndex uniquenessIndex;
+
+    private final BookTitleIndex titleIndex;
+
+    private final BookDateHistogram dateHistogram;
+
+    private final CatalogueVersion catalogueVersion;
+
+    private final BookChangeLog changeLog;
+
+    private final BookProperties.BulkImport config;
+
+    private final ThreadPoolTaskExecutor importExecutor;
+
+    private final ThreadPoolTaskExecutor parseExecutor;
+
+    /**
+     * Imports by id. Queued and running imports are kept until they finish, finished ones for the job retention
+     */
+    private final Cache<String, ImportJob> jobs;
+
+    public BookImportService(BookRepository bookRepo, BookService bookService,
+                             TransactionTemplate transactionTemplate, BookCache bookCache,
+                             BookUniquenessIndex uniquenessIndex, BookTitleIndex titleIndex,
+                             BookDateHistogram dateHistogram, CatalogueVersion catalogueVersion,
+                             BookChangeLog changeLog, BookProperties bookProperties) {
+        this.bookRepo = bookRepo;
+        this.bookService = bookService;
+        this.transactionTemplate = transactionTemplate;
+        this.bookCache = bookCache;
+        this.uniquenessIndex = uniquenessIndex;
+        this.titleIndex = titleIndex;
+        this.dateHistogram = dateHistogram;
+        this.catalogueVersion = catalogueVersion;
+        this.changeLog = changeLog;
+        this.config = bookProperties.getBulkImport();
+        this.importExecutor = executor("book-import-", 1);
+        this.parseExecutor = executor("book-import-parse-", config.getParseThreads());
+        long retention = config.getJobRetention().toNanos();
+        this.jobs = Caffeine.newBuilder()
+                .expireAfter(new Expiry<String, ImportJob>() {
+                    @Override
+                    public long expireAfterCreate(String id, ImportJob job, long currentTime) {
+                        return job.isActive() ? Long.MAX_VALUE : retention;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String id, ImportJob job, long currentTime, long currentDuration) {
+                        return job.isActive() ? Long.MAX_VALUE : retention;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String id, ImportJob job, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+    }
+
+    private static ThreadPoolTaskExecutor executor(String threadNamePrefix, int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Queues the import of a file of the import directory. Imports run one at a time, in the order they were
+     * started. If a checkpoint of the same file exists, the import resumes from it
+     *
+     * @param fileName name of the file, relative to the import directory
+     * @return ImportJob tracking the progress of the import
+     * @throws ResponseException 400 BAD REQUEST if the file doesn't exist, is outside of the import directory or
+     *                           its header lacks the title, isbn or publishedDate columns, 409 CONFLICT if the file
+     *                           is already being imported
+     */
+    public ImportJob startImport(String fileName) throws ResponseException {
+        Path directory = config.getDirectory().toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file)) {
+            throw new ResponseException(BookError.IMPORT_FILE);
+        }
+        Header header = readHeader(file);
+        ImportJob job;
+        synchronized (jobs) {
+            if (jobs.asMap().values().stream().anyMatch(running -> running.isActive() && running.getFile().equals(file))) {
+                throw new ResponseException(BookError.IMPORT_RUNNING);
+            }
+            try {
+                job = new ImportJob(UUID.randomUUID().toString(), file, Files.size(file));
+            } catch (IOException e) {
+                throw new ResponseException(BookError.IMPORT_FILE);
+            }
+            jobs.put(job.getId(), job);
+        }
+        importExecutor.execute(() -> run(job, header));
+        return job;
+    }
+
+    /**
+     * Returns the progress of an import. Finished imports are kept for the job retention
+     *
+     * @param id id of the import
+     * @return ImportJob of the import
+     * @throws ResponseException 404 NOT FOUND if there is no import with the id
+     */
+    public ImportJob getImport(String id) throws ResponseException {
+        ImportJob job = jobs.getIfPresent(id);
+        if (job == null) {
+            throw new ResponseException(BookError.IMPORT_NOT_FOUND, id);
+        }
+        return job;
+    }
+
+    /**
+     * Reads the header of a file and locates the columns of a book. Other columns, such as the id of an export, are
+     * ignored
+     *
+     * @param file CSV file
+     * @return Header with the position of the columns and the offset of the first record
+     * @throws ResponseException 400 BAD REQUEST if the header can't be read or lacks one of the columns
+     */
+    private Header readHeader(Path file) throws ResponseException {
+        try (CsvChunkReader reader = new CsvChunkReader(file, 0, 0, 1, readBufferSize())) {
+            CsvChunkReader.CsvChunk chunk = reader.next();
+            if (chunk != null) {
+                CsvRecords records = new CsvRecords(new String(chunk.bytes(), StandardCharsets.UTF_8));
+                String[] fields = records.next();
+                if (fields != null) {
+                    List<String> columns = Arrays.stream(fields)
+                            .map(column -> column.replace("\uFEFF", "").trim())
+                            .toList();
+                    int title = columns.indexOf("title");
+                    int isbn = columns.indexOf("isbn");
+                    int publishedDate = columns.indexOf("publishedDate");
+                    if (title >= 0 && isbn >= 0 && publishedDate >= 0) {
+                        return new Header(title, isbn, publishedDate, chunk.endOffset());
+                    }
+                }
+            }
+        } catch (IOException e) {
+            log.error("Error reading the header of {}", file, e);
+        }
+        throw new ResponseException(BookError.IMPORT_HEADER);
+    }
+
+    /**
+     * Runs an import to the end of the file, keeping up to two chunks per parse thread in flight ahead of the writer
+     */
+    private void run(ImportJob job, Header header) {
+        Path file = job.getFile();
+        try {
+            ImportCheckpoint checkpoint = ImportCheckpoint.read(file).orElse(null);
+            boolean resumed = checkpoint != null;
+            if (resumed) {
+                log.info("Resuming import of {} from row {}", file, checkpoint.nextRecord());
+            } else {
+                // a crash before the first checkpoint leaves this one, so the next run knows it resumes
+                checkpoint = new ImportCheckpoint(job.getTotalBytes(), header.dataOffset(), 1, 0, 0);
+                checkpoint.write(file);
+            }
+            job.start(checkpoint);
+            long inserted = checkpoint.inserted();
+            long rejected = checkpoint.rejected();
+            long lastLog = System.currentTimeMillis();
+
+            try (CsvChunkReader reader = new CsvChunkReader(file, checkpoint.offset(), checkpoint.nextRecord(),
+                    config.getChunkSize(), readBufferSize());
+                 BufferedWriter report = openReport(job.getReport(), resumed)) {
+                Deque<CompletableFuture<ParsedChunk>> inFlight = new ArrayDeque<>();
+                boolean more = true;
+                // the interrupted run may have committed the first chunk without checkpointing it
+                boolean mightBeStored = resumed;
+                while (true) {
+                    while (more && inFlight.size() < config.getParseThreads() * 2) {
+                        CsvChunkReader.CsvChunk chunk = reader.next();
+                        if (chunk == null) {
+                            more = false;
+                        } else {
+                            inFlight.add(CompletableFuture.supplyAsync(() -> parse(chunk, header), parseExecutor));
+                        }
+                    }
+                    if (inFlight.isEmpty()) {
+                        break;
+                    }
+                    ParsedChunk chunk = inFlight.poll().join();
+                    List<ImportRow> rejectedRows = new ArrayList<>(chunk.rejected());
+                    inserted += write(chunk.valid(), rejectedRows, mightBeStored);
+                    mightBeStored = false;
+                    rejected += rejectedRows.size();
+                    for (ImportRow row : rejectedRows) {
+                        writeReportLine(report, row);
+                    }
+                    report.flush();
+                    new ImportCheckpoint(job.getTotalBytes(), chunk.endOffset(), chunk.nextRecord(), inserted,
+                            rejected).write(file);
+                    job.progress(chunk.endOffset(), chunk.nextRecord() - 1, inserted, rejected);
+
+                    if (System.currentTimeMillis() - lastLog >= PROGRESS_LOG_INTERVAL_MS) {
+                        lastLog = System.currentTimeMillis();
+                        log.info("Import of {}: {} rows read, {} inserted, {} rejected, {} rows/s", file,
+                                job.getRowsRead(), inserted, rejected, job.getRowsPerSecond());
+                    }
+                }
+            }
+            Files.deleteIfExists(ImportCheckpoint.pathOf(file));
+            job.complete();
+            log.info("Import of {} completed: {} rows read, {} inserted, {} rejected, {} rows/s", file,
+                    job.getRowsRead(), inserted, rejected, job.getRowsPerSecond());
+        } catch (IOException e) {
+            log.error("Import of {} failed", file, e);
+            job.fail("error.book.import.io");
+        } catch (RuntimeException e) {
+            log.error("Import of {} failed", file, e);
+            job.fail("error.book.import.failed");
+        } finally {
+            // the job is finished now, putting it again starts its retention
+            jobs.put(job.getId(), job);
+        }
+    }
+
+    /**
+     * Decodes, parses and validates the records of a chunk. Runs on the parse threads
+     */
+    private ParsedChunk parse(CsvChunkReader.CsvChunk chunk, Header header) {
+        CsvRecords records = new CsvRecords(new String(chunk.bytes(), StandardCharsets.UTF_8));
+        List<ImportRow> valid = new ArrayList<>(config.getChunkSize());
+        List<ImportRow> rejected = new ArrayList<>();
+        long number = chunk.firstRecord();
+        while (records.hasNext()) {
+            long row = number++;
+            String[] fields = records.next();
+            if (fields != null && fields.length == 1 && fields[0].isBlank()) {
+                continue;
+            }
+            if (fields == null || fields.length < header.width()) {
+                rejected.add(new ImportRow(row, null, "error.book.import.malformed", records.lastRecord()));
+                continue;
+            }
+            String date = fields[header.publishedDate()];
+            LocalDate publishedDate;
+            try {
+                publishedDate = date.isBlank() ? null : LocalDate.parse(date.trim());
+            } catch (DateTimeParseException e) {
+                rejected.add(new ImportRow(row, null, "error.book.import.invalidDate", records.lastRecord()));
+                continue;
+            }
+            BookRecordIn book = new BookRecordIn(fields[header.title()], fields[header.isbn()], publishedDate);
+            String violation = bookService.firstViolation(book);
+            if (violation != null) {
+                rejected.add(new ImportRow(row, null, violation, records.lastRecord()));
+            } else {
+                valid.add(new ImportRow(row, book, null, records.lastRecord()));
+            }
+        }
+        return new ParsedChunk(valid, rejected, chunk.endOffset(), number);
+    }
+
+    /**
+     * Writes the valid rows of a chunk in a single transaction. A chunk that collides with a concurrent write is
+     * retried once, the retry sees the competing book and rejects the row
+     *
+     * @param rows          valid rows of the chunk
+     * @param rejected      rejected rows of the chunk, receives the duplicated rows
+     * @param mightBeStored true if an interrupted run may have committed the chunk already
+     * @return number of inserted books, including the ones an interrupted run already stored
+     */
+    private int write(List<ImportRow> rows, List<ImportRow> rejected, boolean mightBeStored) {
+        if (rows.isEmpty()) {
+            return 0;
+        }
+        int rejectedBefore = rejected.size();
+        Written written;
+        try {
+            written = transactionTemplate.execute(status -> writeChunk(rows, rejected, mightBeStored));
+        } catch (DataIntegrityViolationException e) {
+            rejected.subList(rejectedBefore, rejected.size()).clear();
+            written = transactionTemplate.execute(status -> writeChunk(rows, rejected, mightBeStored));
+        }
+        List<BookRecordOut> inserted = new ArrayList<>(written.ids().length);
+        for (int i = 0; i < written.ids().length; i++) {
+            BookRecordIn book = written.books().get(i);
+            int id = written.ids()[i];
+            uniquenessIndex.add(book.title(), book.isbn());
+            titleIndex.add(id, book.title());
+            dateHistogram.add(book.publishedDate());
+            inserted.add(BookService.insertedRecord(id, book));
+        }
+        if (!inserted.isEmpty()) {
+            catalogueVersion.changed();
+            changeLog.insertedAll(inserted);
+            inserted.forEach(book -> bookCache.invalidate(book.id()));
+        }
+        return written.ids().length + written.alreadyStored();
+    }
+
+    /**
+     * Checks the rows of a chunk against the stored books and each other, and inserts the ones left. Only titles
+     * and ISBNs the uniqueness index can't rule out are queried. Earlier chunks are already stored and indexed, so
+     * duplicates across chunks are caught the same way as books inserted through the API. When the chunk might have
+     * been committed by an interrupted run, rows matching a stored book in every field are skipped as already
+     * imported instead of rejected
+     */
+    private Written writeChunk(List<ImportRow> rows, List<ImportRow> rejected, boolean mightBeStored) {
+        Set<String> titles = new HashSet<>();
+        Set<String> isbns = new HashSet<>();
+        for (ImportRow row : rows) {
+            if (uniquenessIndex.mightContainTitle(row.book().title())) {
+                titles.add(row.book().title());
+            }
+            if (uniquenessIndex.mightContainIsbn(row.book().isbn())) {
+                isbns.add(row.book().isbn());
+            }
+        }
+        Set<String> usedTitles = new HashSet<>();
+        Set<String> usedIsbns = new HashSet<>();
+        Set<BookRecordIn> stored = new HashSet<>();
+        for (Book existing : bookRepo.findByTitleInOrIsbnIn(titles, isbns)) {
+            usedTitles.add(existing.getTitle());
+            usedIsbns.add(existing.getIsbn());
+            if (mightBeStored) {
+                stored.add(new BookRecordIn(existing.getTitle(), existing.getIsbn(), existing.getPublishedDate()));
+            }
+        }
+
+        List<BookRecordIn> books = new ArrayList<>(rows.size());
+        int alreadyStored = 0;
+        for (ImportRow row : rows) {
+            BookRecordIn book = row.book();
+            if (stored.remove(book)) {
+                alreadyStored++;
+            } else if (usedTitles.contains(book.title()) || usedIsbns.contains(book.isbn())) {
+                rejected.add(new ImportRow(row.number(), null, "error.book.notUnique", row.raw()));
+            } else {
+                usedTitles.add(book.title());
+                usedIsbns.add(book.isbn());
+                books.add(book);
+            }
+        }
+        return new Written(books, books.isEmpty() ? new int[0] : bookRepo.insertRows(books), alreadyStored);
+    }
+
+    /**
+     * Opens the report of rejected rows, appending to the report of the interrupted run when resuming
+     */
+    private static BufferedWriter openReport(Path report, boolean resumed) throws IOException {
+        if (resumed && Files.exists(report) && Files.size(report) > 0) {
+            return Files.newBufferedWriter(report, StandardCharsets.UTF_8, StandardOpenOption.APPEND);
+        }
+        BufferedWriter writer = Files.newBufferedWriter(report, StandardCharsets.UTF_8);
+        writer.write("row,reason,record\n");
+        return writer;
+    }
+
+    private static void writeReportLine(BufferedWriter report, ImportRow row) throws IOException {
+        report.write(String.valueOf(row.number()));
+        report.write(',');
+        report.write(row.violation());
+        report.write(",\"");
+        report.write(row.raw().replace("\"", "\"\""));
+        report.write("\"\n");
+    }
+
+    private int readBufferSize() {
+        return (int) config.getReadBufferSize().toBytes();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        importExecutor.shutdown();
+        parseExecutor.shutdown();
+    }
+
+    /**
+     * Position of the book columns in the file
+     *
+     * @param dataOffset file offset of the first record after the header
+     */
+    private record Header(int title, int isbn, int publishedDate, long dataOffset) {
+
+        int width() {
+            return Math.max(title, Math.max(isbn, publishedDate)) + 1;
+        }
+    }
+
+    /**
+     * A record of the file, either a valid book or the reason it was rejected
+     *
+     * @param number    number of the record, the first one after the header is 1
+     * @param book      parsed book, null if rejected
+     * @param violation message code of the rejection, null if valid
+     * @param raw       raw text of the record
+     */
+    private record ImportRow(long number, BookRecordIn book, String violation, String raw) {
+    }
+
+    /**
+     * @param nextRecord number of the first record after the chunk
+     */
+    private record ParsedChunk(List<ImportRow> valid, List<ImportRow> rejected, long endOffset, long nextRecord) {
+    }
+
+    /**
+     * @param alreadyStored rows skipped because an interrupted run had already inserted them
+     */
+    private record Written(List<BookRecordIn> books, int[] ids, int alreadyStored) {
+    }
+}
@@ -1,39 +1,138 @@
 package com.salomao.springassignment.service;
 
+import com.salomao.springassignment.cache.BookCache;
+import com.salomao.springassignment.cache.CatalogueVersion;
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
 import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.error.exception.UncheckedResponseException;
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.index.BookTitleIndex;
+import com.salomao.springassignment.index.BookUniquenessIndex;
+import com.salomao.springassignment.lookup.BookLookupBatcher;
 import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.repository.BookKeyset;
 import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.repository.BookSort;
+import com.salomao.springassignment.web.dto.BookBatchItemOut;
+import com.salomao.springassignment.web.dto.BookBatchOut;
+import com.salomao.springassignment.web.dto.BookBulkOut;
+import com.salomao.springassignment.web.dto.BookBulkUpdateIn;
+import com.salomao.springassignment.web.dto.BookLookupOut;
+import com.salomao.springassignment.web.dto.BookPageOut;
 import com.salomao.springassignment.web.dto.BookRecordIn;
 import com.salomao.springassignment.web.dto.BookRecordOut;
 import com.salomao.springassignment.web.dto.InsertResponseDTO;
+import com.salomao.springassignment.web.etag.BookETags;
+import com.salomao.springassignment.web.export.BookExportWriter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import net.kaczmarzyk.spring.data.jpa.utils.Converter;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class BookService {
 
+    /**
+     * SQLState reported by the database when a unique constraint is violated
+     */
+    private static final String UNIQUE_VIOLATION_SQL_STATE = "23505";
+
     private final BookRepository bookRepo;
 
+    private final BookProperties bookProperties;
+
+    private final Validator validator;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BookCache bookCache;
+
+    private final BookUniquenessIndex uniquenessIndex;
+
+    private final BookTitleIndex titleIndex;
+
+    private final CatalogueVersion catalogueVersion;
+
+    private final BookDateHistogram dateHistogram;
+
+    private final BookChangeLog changeLog;
+
+    private final BookLookupBatcher lookupBatcher;
+
     /**
-     * Returns a single BookRecord object from an id
+     * Returns a single BookRecord object from an id, served from the book cache when possible
      *
      * @param id book id
      * @return BookRecord object
      * @throws ResponseException 404 FOUND error if book isn't found
      */
     public BookRecordOut getBookById(Integer id) throws ResponseException {
-        if (bookRepo.findById(id).isPresent()) {
-            return bookToBookRecord(bookRepo.findById(id).get());
+        return bookCache.get(id, lookupBatcher::load)
+                .orElseThrow(() -> new ResponseException(BookError.BOOK_NOT_FOUND, id));
+    }
+
+    /**
+     * Returns the BookRecords of several ids. Books missing from the book cache are read with IN queries of up to
+     * the configured chunk size, so a shelf of books costs one request and a few queries
+     *
+     * @param ids book ids, duplicates and nulls are ignored
+     * @return BookLookupOut with the books found in the order of the ids, and the ids without a book
+     * @throws ResponseException 400 BAD REQUEST if there are no ids or more than the configured maximum
+     */
+    public BookLookupOut getBooksByIds(List<Integer> ids) throws ResponseException {
+        List<Integer> distinct = ids.stream().filter(Objects::nonNull).distinct().toList();
+        if (distinct.isEmpty() || distinct.size() > bookProperties.getLookup().getMaxIds()) {
+            throw new ResponseException(BookError.LOOKUP_SIZE);
+        }
+        Map<Integer, Optional<BookRecordOut>> found = bookCache.getAll(distinct, this::findRecords);
+        List<BookRecordOut> books = new ArrayList<>(distinct.size());
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : distinct) {
+            found.getOrDefault(id, Optional.empty()).ifPresentOrElse(books::add, () -> missing.add(id));
+        }
+        return new BookLookupOut(books, missing);
+    }
+
+    private Map<Integer, Optional<BookRecordOut>> findRecords(Set<? extends Integer> ids) {
+        List<Integer> pending = new ArrayList<>(ids);
+        Map<Integer, Optional<BookRecordOut>> records = new HashMap<>();
+        int chunkSize = bookProperties.getLookup().getChunkSize();
+        for (int from = 0; from < pending.size(); from += chunkSize) {
+            List<Integer> chunk = pending.subList(from, Math.min(from + chunkSize, pending.size()));
+            bookRepo.findRecordsByIdIn(chunk).forEach(book -> records.put(book.id(), Optional.of(book)));
         }
-        throw new ResponseException(HttpStatus.NOT_FOUND, "error.book.notFound");
+        pending.forEach(id -> records.putIfAbsent(id, Optional.empty()));
+        return records;
     }
 
     /**
@@ -43,91 +142,586 @@ public class BookService {
      * @return BookRecord DTO with requested book
      */
     private BookRecordOut bookToBookRecord(Book book) {
-        return new BookRecordOut(book.getId(), book.getTitle(), book.getIsbn(), book.getPublishedDate());
+        return new BookRecordOut(book.getId(), book.getTitle(), book.getIsbn(), book.getPublishedDate(),
+                book.getVersion());
     }
 
     /**
-     * Converts list of Book objects to list of BookRecord objects
+     * Returns a single page of BookRecords from a Specification<Book>, using keyset pagination so the cost of a
+     * request depends on the page size and not on the size of the table. Title searches are first resolved to
+     * candidate ids by the title index, so the database only checks those rows instead of scanning every title
      *
-     * @param books List of Book objects
-     * @return List of BookRecord objects
+     * @param bookSpec specification with filters for searching books
+     * @param title    title filter informed by the client, may be null
+     * @param sort     sort order of the listing
+     * @param cursor   token returned as nextCursor by the previous page, null for the first page
+     * @param limit    requested page size, clamped to the configured maximum
+     * @return BookPageOut with the books of the page and the cursor for the next one
+     * @throws ResponseException 400 BAD REQUEST if the cursor is malformed or belongs to another sort, or if
+     *                           RELEVANCE is requested for a search the title index can't resolve
      */
-    private List<BookRecordOut> booksToBookRecords(List<Book> books) {
-        List<BookRecordOut> bookRecordOuts = new ArrayList<>();
-        for (Book book : books) {
-            bookRecordOuts.add(bookToBookRecord(book));
+    public BookPageOut getAllBooksBySpecification(Specification<Book> bookSpec, String title, BookSort sort,
+                                                  String cursor, Integer limit) throws ResponseException {
+        BookKeyset after = null;
+        if (cursor != null && !cursor.isBlank()) {
+            after = BookKeyset.decode(cursor)
+                    .filter(keyset -> keyset.sort() == sort)
+                    .orElseThrow(() -> new ResponseException(BookError.INVALID_CURSOR));
+        }
+        int pageSize = bookProperties.getPage().resolve(limit);
+
+        Specification<Book> spec = rejectingMalformedDates(bookSpec);
+        Optional<int[]> candidates = title == null ? Optional.empty() : titleIndex.candidates(title);
+        if (sort == BookSort.RELEVANCE) {
+            int[] ids = candidates.orElseThrow(() ->
+                    new ResponseException(BookError.RELEVANCE_UNAVAILABLE));
+            return getBooksByRelevance(spec, title, ids, after, pageSize);
+        }
+        if (candidates.isPresent()) {
+            if (candidates.get().length == 0) {
+                return new BookPageOut(List.of(), null);
+            }
+            spec = Specification.where(spec).and(idIn(candidates.get()));
         }
-        return bookRecordOuts;
 
+        List<BookRecordOut> books = bookRepo.findPage(spec, sort, after, pageSize + 1);
+        String nextCursor = null;
+        if (books.size() > pageSize) {
+            books = books.subList(0, pageSize);
+            BookRecordOut last = books.get(pageSize - 1);
+            nextCursor = new BookKeyset(sort, last.id(), last.publishedDate()).encode();
+        }
+        return new BookPageOut(books, nextCursor);
     }
 
     /**
-     * Returns a list of BookRecords from a Specification<Book>
+     * Returns a page of a title search ranked by relevance. Candidates are bounded by the title index, so they are
+     * all loaded and ranked in memory
+     *
+     * @param bookSpec   specification with filters for searching books
+     * @param title      searched title fragment
+     * @param candidates candidate ids resolved by the title index
+     * @param after      position of the last book of the previous page, null for the first page
+     * @param pageSize   page size
+     * @return BookPageOut with the books of the page and the cursor for the next one
+     * @throws ResponseException 400 BAD REQUEST if the book of the cursor is no longer part of the results
+     */
+    private BookPageOut getBooksByRelevance(Specification<Book> bookSpec, String title, int[] candidates,
+                                            BookKeyset after, int pageSize) throws ResponseException {
+        if (candidates.length == 0) {
+            return new BookPageOut(List.of(), null);
+        }
+        List<BookRecordOut> books = new ArrayList<>(bookRepo.findPage(
+                Specification.where(bookSpec).and(idIn(candidates)), BookSort.ID_ASC, null, candidates.length));
+        books.sort(Comparator.comparingInt((BookRecordOut book) -> -BookTitleIndex.relevance(book.title(), title))
+                .thenComparingInt(book -> book.title().length())
+                .thenComparing(BookRecordOut::id));
+
+        int from = 0;
+        if (after != null) {
+            from = 1 + books.stream().map(BookRecordOut::id).toList().indexOf(after.id());
+            if (from == 0) {
+                throw new ResponseException(BookError.INVALID_CURSOR);
+            }
+        }
+        int to = Math.min(from + pageSize, books.size());
+        List<BookRecordOut> page = books.subList(from, to);
+        String nextCursor = to < books.size()
+                ? new BookKeyset(BookSort.RELEVANCE, page.get(page.size() - 1).id(), null).encode()
+                : null;
+        return new BookPageOut(page, nextCursor);
+    }
+
+    /**
+     * @param ids sorted book ids
+     * @return Specification<Book> matching only the given ids. The ids are bound as parameters padded to a power of
+     * two, see hibernate.query.in_clause_parameter_padding in application.yml
+     */
+    private static Specification<Book> idIn(int[] ids) {
+        List<Integer> boxed = Arrays.stream(ids).boxed().toList();
+        return (root, query, cb) -> root.get("id").in(boxed);
+    }
+
+    /**
+     * The date filters only parse their values when the query is built, throwing an IllegalArgumentException from
+     * the repository for a malformed date. Wrapping them turns that into the DATE_FORMAT error of the API
+     *
+     * @param bookSpec specification with filters for searching books, may be null
+     * @return Specification<Book> failing with an UncheckedResponseException of DATE_FORMAT if a date is malformed
+     */
+    private static Specification<Book> rejectingMalformedDates(Specification<Book> bookSpec) {
+        if (bookSpec == null) {
+            return null;
+        }
+        return (root, query, cb) -> {
+            try {
+                return bookSpec.toPredicate(root, query, cb);
+            } catch (Converter.ValueRejectedException e) {
+                throw new UncheckedResponseException(new ResponseException(BookError.DATE_FORMAT));
+            }
+        };
+    }
+
+    /**
+     * Writes every book matching a Specification<Book> to an export writer, reading them through a database cursor
+     * so memory use doesn't depend on the number of exported books
      *
      * @param bookSpec specification with filters for searching books
-     * @return List of BookRecord objects
+     * @param writer   writer of the requested export format
+     * @return number of exported books
+     * @throws IOException if the client went away
      */
-    public List<BookRecordOut> getAllBooksBySpecification(Specification<Book> bookSpec) {
-        return booksToBookRecords(bookRepo.findAll(bookSpec));
+    @Transactional(readOnly = true)
+    public long exportBooks(Specification<Book> bookSpec, BookExportWriter writer) throws IOException {
+        BookProperties.Export export = bookProperties.getExport();
+        long count = 0;
+        try (Stream<BookRecordOut> books = bookRepo.streamAll(rejectingMalformedDates(bookSpec),
+                export.getFetchSize())) {
+            Iterator<BookRecordOut> iterator = books.iterator();
+            while (iterator.hasNext()) {
+                writer.write(iterator.next());
+                if (++count % export.getFlushEvery() == 0) {
+                    writer.flush();
+                }
+            }
+        }
+        writer.finish();
+        return count;
     }
 
     /**
      * Saves a book to the repository
      *
      * @param bookRecordOut BookRecordOut DTO object
+     * @return InsertResponseDTO with the id of the new book and success message code
+     * @throws ResponseException 400 BAD REQUEST if the title or ISBN is already in use or 409 CONFLICT if another
+     *                           write of the title or ISBN is in progress
+     */
+    public InsertResponseDTO insertBook(BookRecordIn bookRecordOut) throws ResponseException {
+        String title = bookRecordOut.title();
+        String isbn = bookRecordOut.isbn();
+        if (!uniquenessIndex.reserve(title, isbn)) {
+            throw new ResponseException(BookError.WRITE_IN_PROGRESS);
+        }
+        try {
+            if (!checkIfTitleAndISBNIsUnique(title, isbn, null)) {
+                throw new ResponseException(BookError.BOOK_NOT_UNIQUE);
+            }
+            Book saved = bookRepo.save(bookRecordToBook(bookRecordOut));
+            Integer id = saved.getId();
+            uniquenessIndex.add(title, isbn);
+            titleIndex.add(id, title);
+            dateHistogram.add(bookRecordOut.publishedDate());
+            catalogueVersion.changed();
+            changeLog.inserted(bookToBookRecord(saved));
+            bookCache.invalidate(id);
+            return new InsertResponseDTO(id, "success.book.insert");
+        } catch (DataIntegrityViolationException e) {
+            if (!isUniqueViolation(e)) {
+                throw e;
+            }
+            throw new ResponseException(BookError.BOOK_NOT_UNIQUE);
+        } finally {
+            uniquenessIndex.release(title, isbn);
+        }
+    }
+
+    /**
+     * Converts DTO to a new book entity
+     *
+     * @param bookRecordIn BookRecordIn DTO object
+     * @return Book entity without id
      */
-    public InsertResponseDTO insertBook(BookRecordIn bookRecordOut) {
+    private Book bookRecordToBook(BookRecordIn bookRecordIn) {
         Book book = new Book();
-        book.setTitle(bookRecordOut.title());
-        book.setIsbn(bookRecordOut.isbn());
-        book.setPublishedDate(bookRecordOut.publishedDate());
+        book.setTitle(bookRecordIn.title());
+        book.setIsbn(bookRecordIn.isbn());
+        book.setPublishedDate(bookRecordIn.publishedDate());
+        return book;
+    }
+
+    /**
+     * Saves a batch of books. Books are validated one by one, checked for uniqueness with a single query per chunk
+     * and written with JDBC batching, each chunk in its own transaction. Invalid or duplicated books are reported
+     * without rejecting the rest of the batch. A chunk that collides with a concurrent write is retried once
+     *
+     * @param bookRecordIns books to be inserted
+     * @return BookBatchOut with the outcome of every book, messages are message codes
+     * @throws ResponseException 400 BAD REQUEST if the batch is empty or larger than the configured maximum
+     */
+    public BookBatchOut insertBooks(List<BookRecordIn> bookRecordIns) throws ResponseException {
+        BookProperties.Batch batch = bookProperties.getBatch();
+        if (bookRecordIns == null || bookRecordIns.isEmpty() || bookRecordIns.size() > batch.getMaxItems()) {
+            throw new ResponseException(BookError.BATCH_SIZE);
+        }
+        List<BookBatchItemOut> items = new ArrayList<>(bookRecordIns.size());
+        Set<String> takenTitles = new HashSet<>();
+        Set<String> takenIsbns = new HashSet<>();
+        for (int from = 0; from < bookRecordIns.size(); from += batch.getChunkSize()) {
+            int offset = from;
+            List<BookRecordIn> chunk = bookRecordIns.subList(from,
+                    Math.min(from + batch.getChunkSize(), bookRecordIns.size()));
+            int chunkStart = items.size();
+            try {
+                transactionTemplate.executeWithoutResult(status ->
+                        insertChunk(offset, chunk, takenTitles, takenIsbns, items));
+            } catch (DataIntegrityViolationException e) {
+                // a concurrent write took one of the titles or ISBNs after the uniqueness query, the retry will see it
+                items.subList(chunkStart, items.size()).clear();
+                transactionTemplate.executeWithoutResult(status ->
+                        insertChunk(offset, chunk, takenTitles, takenIsbns, items));
+            }
+            List<BookRecordOut> inserted = items.subList(chunkStart, items.size()).stream()
+                    .filter(item -> item.getId() != null)
+                    .map(item -> insertedRecord(item.getId(), bookRecordIns.get(item.getIndex())))
+                    .toList();
+            inserted.forEach(book -> dateHistogram.add(book.publishedDate()));
+            changeLog.insertedAll(inserted);
+        }
+        items.stream().map(BookBatchItemOut::getId).filter(Objects::nonNull).forEach(bookCache::invalidate);
+        int inserted = (int) items.stream().filter(item -> item.getId() != null).count();
+        if (inserted > 0) {
+            catalogueVersion.changed();
+        }
+        return new BookBatchOut(inserted, items.size() - inserted, items);
+    }
 
-        return new InsertResponseDTO(bookRepo.save(book).getId(), "success.book.insert");
+    /**
+     * @param id           id of a book inserted in a batch
+     * @param bookRecordIn inserted data
+     * @return BookRecordOut of the book, at its first version
+     */
+    static BookRecordOut insertedRecord(Integer id, BookRecordIn bookRecordIn) {
+        return new BookRecordOut(id, bookRecordIn.title(), bookRecordIn.isbn(), bookRecordIn.publishedDate(), 0L);
     }
 
     /**
-     * Updates a book in the repository
+     * Validates, checks uniqueness and writes a single chunk of a batch insert
+     *
+     * @param offset      position of the first book of the chunk in the batch
+     * @param chunk       books of the chunk
+     * @param takenTitles titles inserted by previous chunks, updated with the books of this chunk once written
+     * @param takenIsbns  ISBNs inserted by previous chunks, updated with the books of this chunk once written
+     * @param items       outcome list, receives one item per book of the chunk
+     */
+    private void insertChunk(int offset, List<BookRecordIn> chunk, Set<String> takenTitles, Set<String> takenIsbns,
+                             List<BookBatchItemOut> items) {
+        Set<String> titles = new HashSet<>();
+        Set<String> isbns = new HashSet<>();
+        for (BookRecordIn bookRecordIn : chunk) {
+            if (bookRecordIn == null) {
+                continue;
+            }
+            if (bookRecordIn.title() != null && uniquenessIndex.mightContainTitle(bookRecordIn.title())) {
+                titles.add(bookRecordIn.title());
+            }
+            if (bookRecordIn.isbn() != null && uniquenessIndex.mightContainIsbn(bookRecordIn.isbn())) {
+                isbns.add(bookRecordIn.isbn());
+            }
+        }
+        Set<String> usedTitles = new HashSet<>(takenTitles);
+        Set<String> usedIsbns = new HashSet<>(takenIsbns);
+        for (Book existing : bookRepo.findByTitleInOrIsbnIn(titles, isbns)) {
+            usedTitles.add(existing.getTitle());
+            usedIsbns.add(existing.getIsbn());
+        }
+
+        List<Book> books = new ArrayList<>();
+        List<BookBatchItemOut> accepted = new ArrayList<>();
+        for (int i = 0; i < chunk.size(); i++) {
+            BookRecordIn bookRecordIn = chunk.get(i);
+            String violation = firstViolation(bookRecordIn);
+            if (violation != null) {
+                items.add(new BookBatchItemOut(offset + i, HttpStatus.BAD_REQUEST.value(), null, violation));
+            } else if (usedTitles.contains(bookRecordIn.title()) || usedIsbns.contains(bookRecordIn.isbn())) {
+                items.add(new BookBatchItemOut(offset + i, HttpStatus.BAD_REQUEST.value(), null,
+                        "error.book.notUnique"));
+            } else {
+                usedTitles.add(bookRecordIn.title());
+                usedIsbns.add(bookRecordIn.isbn());
+                BookBatchItemOut item = new BookBatchItemOut(offset + i, HttpStatus.CREATED.value(), null,
+                        "success.book.insert");
+                books.add(bookRecordToBook(bookRecordIn));
+                accepted.add(item);
+                items.add(item);
+            }
+        }
+
+        bookRepo.insertAll(books);
+        for (int i = 0; i < books.size(); i++) {
+            Book book = books.get(i);
+            accepted.get(i).setId(book.getId());
+            takenTitles.add(book.getTitle());
+            takenIsbns.add(book.getIsbn());
+            uniquenessIndex.add(book.getTitle(), book.getIsbn());
+            titleIndex.add(book.getId(), book.getTitle());
+        }
+    }
+
+    /**
+     * Validates a book of a batch or import against the BookRecordIn constraints
+     *
+     * @param bookRecordIn book to be validated
+     * @return message code of the first violation, or null if the book is valid
+     */
+    String firstViolation(BookRecordIn bookRecordIn) {
+        if (bookRecordIn == null) {
+            return "error.book.batch.nullItem";
+        }
+        return validator.validate(bookRecordIn).stream()
+                .sorted(Comparator.comparing(violation -> violation.getPropertyPath().toString()))
+                .map(ConstraintViolation::getMessageTemplate)
+                .map(template -> template.replaceAll("[{}]", ""))
+                .findFirst()
+                .orElse(null);
+    }
+
+    /**
+     * Updates a book in the repository. The update only applies to the version of the book that was read, so a
+     * concurrent update is never silently overwritten
      *
      * @param id           id of book to be updated
      * @param bookRecordIn data to be updated
+     * @param ifMatch      If-Match header informed by the client, may be null
      * @return success message code
-     * @throws ResponseException 404 NOT FOUND
+     * @throws ResponseException 404 NOT FOUND, 400 BAD REQUEST if the title or ISBN is used by another book,
+     *                           412 PRECONDITION FAILED if the book no longer matches If-Match or 409 CONFLICT if
+     *                           the book was updated concurrently or another write of the title or ISBN is in
+     *                           progress
      */
-    public String updateBook(Integer id, BookRecordIn bookRecordIn) throws ResponseException {
+    public String updateBook(Integer id, BookRecordIn bookRecordIn, String ifMatch) throws ResponseException {
         Book book = bookRepo.findById(id).orElseThrow(() ->
-                new ResponseException(HttpStatus.NOT_FOUND, "error.book.notFound"));
-        if (!checkIfTitleAndISBNIsUnique(bookRecordIn.title(), bookRecordIn.isbn())) {
-            throw new ResponseException(HttpStatus.BAD_REQUEST, "error.book.notUnique");
+                new ResponseException(BookError.BOOK_NOT_FOUND, id));
+        checkPrecondition(book, ifMatch);
+        String title = bookRecordIn.title();
+        String isbn = bookRecordIn.isbn();
+        if (!uniquenessIndex.reserve(title, isbn)) {
+            throw new ResponseException(BookError.WRITE_IN_PROGRESS);
         }
-        book.setTitle(bookRecordIn.title());
-        book.setIsbn(bookRecordIn.isbn());
-        book.setPublishedDate(bookRecordIn.publishedDate());
+        try {
+            if (!checkIfTitleAndISBNIsUnique(title, isbn, id)) {
+                throw new ResponseException(BookError.BOOK_NOT_UNIQUE);
+            }
+            String previousTitle = book.getTitle();
+            LocalDate previousPublishedDate = book.getPublishedDate();
+            book.setTitle(title);
+            book.setIsbn(isbn);
+            book.setPublishedDate(bookRecordIn.publishedDate());
 
-        bookRepo.save(book);
+            BookRecordOut updated = bookToBookRecord(bookRepo.save(book));
+            uniquenessIndex.add(title, isbn);
+            if (!previousTitle.equals(title)) {
+                titleIndex.remove(id, previousTitle);
+                titleIndex.add(id, title);
+            }
+            if (!previousPublishedDate.equals(bookRecordIn.publishedDate())) {
+                dateHistogram.remove(previousPublishedDate);
+                dateHistogram.add(bookRecordIn.publishedDate());
+            }
+            catalogueVersion.changed();
+            changeLog.updated(updated);
+            bookCache.put(updated);
+        } catch (OptimisticLockingFailureException e) {
+            throw concurrentModification(ifMatch);
+        } catch (DataIntegrityViolationException e) {
+            if (!isUniqueViolation(e)) {
+                throw e;
+            }
+            throw new ResponseException(BookError.BOOK_NOT_UNIQUE);
+        } finally {
+            uniquenessIndex.release(title, isbn);
+        }
 
         return "success.book.update";
     }
 
     /**
-     * Checks if book title is unique
+     * Checks if book title and ISBN are unique. Values the uniqueness index knows to be unused skip the query
      *
-     * @param title title to be checked
+     * @param title      title to be checked
+     * @param isbn       ISBN to be checked
+     * @param excludedId id of the book being updated, which may keep its own title and ISBN. Null on inserts
      * @return true if its unique, false if it already exists
      */
-    public boolean checkIfTitleAndISBNIsUnique(String title, String isbn) {
-        return !(bookRepo.findByTitle(title).isPresent() || bookRepo.findByIsbn(isbn).isPresent());
+    private boolean checkIfTitleAndISBNIsUnique(String title, String isbn, Integer excludedId) {
+        if (uniquenessIndex.mightContainTitle(title) && usedByAnotherBook(bookRepo.findByTitle(title), excludedId)) {
+            return false;
+        }
+        return !(uniquenessIndex.mightContainIsbn(isbn) && usedByAnotherBook(bookRepo.findByIsbn(isbn), excludedId));
+    }
+
+    /**
+     * @param book       book found by title or ISBN
+     * @param excludedId id of the book being updated, null on inserts
+     * @return true if a book other than the excluded one was found
+     */
+    private static boolean usedByAnotherBook(Optional<Book> book, Integer excludedId) {
+        return book.filter(found -> !found.getId().equals(excludedId)).isPresent();
+    }
+
+    /**
+     * @param e exception thrown while writing a book
+     * @return true if the exception was caused by the title or ISBN unique constraints
+     */
+    private static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException sqlException
+                && UNIQUE_VIOLATION_SQL_STATE.equals(sqlException.getSQLState());
+    }
+
+    /**
+     * Checks If-Match against the current version of a book
+     *
+     * @param book    stored book
+     * @param ifMatch If-Match header informed by the client, may be null
+     * @throws ResponseException 412 PRECONDITION FAILED if the header doesn't list the current tag of the book
+     */
+    private void checkPrecondition(Book book, String ifMatch) throws ResponseException {
+        String etag = BookETags.of(bookToBookRecord(book), MediaType.APPLICATION_JSON);
+        if (!BookETags.isPreconditionMet(ifMatch, etag)) {
+            throw new ResponseException(BookError.PRECONDITION_FAILED);
+        }
+    }
+
+    /**
+     * @param ifMatch If-Match header informed by the client, may be null
+     * @return 412 PRECONDITION FAILED for conditional writes, 409 CONFLICT otherwise
+     */
+    private static ResponseException concurrentModification(String ifMatch) {
+        return ifMatch == null
+                ? new ResponseException(BookError.CONFLICT)
+                : new ResponseException(BookError.PRECONDITION_FAILED);
     }
 
     /**
      * Deletes a book
-     * @param id id of book to be deleted
+     * @param id      id of book to be deleted
+     * @param ifMatch If-Match header informed by the client, may be null
      * @return Success message
-     * @throws ResponseException 404 NOT FOUND
+     * @throws ResponseException 404 NOT FOUND, 412 PRECONDITION FAILED if the book no longer matches If-Match or
+     *                           409 CONFLICT if the book was updated concurrently
      */
-    public String deleteBook(Integer id) throws ResponseException {
-        Book book = bookRepo.findById(id).orElseThrow(() -> new ResponseException(HttpStatus.NOT_FOUND, "error.book.notFound"));
-        bookRepo.delete(book);
+    public String deleteBook(Integer id, String ifMatch) throws ResponseException {
+        Book book = bookRepo.findById(id).orElseThrow(() -> new ResponseException(BookError.BOOK_NOT_FOUND, id));
+        checkPrecondition(book, ifMatch);
+        try {
+            bookRepo.delete(book);
+        } catch (OptimisticLockingFailureException e) {
+            throw concurrentModification(ifMatch);
+        }
+        titleIndex.remove(id, book.getTitle());
+        dateHistogram.remove(book.getPublishedDate());
+        catalogueVersion.changed();
+        changeLog.deleted(id);
+        bookCache.invalidate(id);
         return "success.book.delete";
 
     }
+
+    /**
+     * Sets the publication date of every book matching a Specification<Book>. Books are walked in id order, one
+     * chunk per transaction, and each chunk is written with a single update statement, so the work grows with the
+     * number of matching books only and a large update never holds a long transaction
+     *
+     * @param bookSpec         specification with filters for searching books
+     * @param bookBulkUpdateIn fields to be set
+     * @param dryRun           true to only count the matching books
+     * @return BookBulkOut with the number of matching and updated books
+     * @throws ResponseException 400 BAD REQUEST if no filter was informed
+     */
+    public BookBulkOut updateBooks(Specification<Book> bookSpec, BookBulkUpdateIn bookBulkUpdateIn, boolean dryRun)
+            throws ResponseException {
+        if (bookSpec == null) {
+            throw new ResponseException(BookError.BULK_FILTER_REQUIRED);
+        }
+        Specification<Book> spec = rejectingMalformedDates(bookSpec);
+        if (dryRun) {
+            long matched = bookRepo.countMatching(spec);
+            return new BookBulkOut(matched, 0, true);
+        }
+        LocalDate publishedDate = bookBulkUpdateIn.publishedDate();
+        long affected = forEachChunk(spec, chunk -> {
+            List<Integer> ids = chunk.stream().map(BookRecordOut::id).toList();
+            bookRepo.updatePublishedDateByIdIn(ids, publishedDate);
+        }, chunk -> {
+            List<BookRecordOut> updated = new ArrayList<>(chunk.size());
+            for (BookRecordOut book : chunk) {
+                dateHistogram.remove(book.publishedDate());
+                dateHistogram.add(publishedDate);
+                updated.add(new BookRecordOut(book.id(), book.title(), book.isbn(), publishedDate,
+                        book.version() + 1));
+            }
+            changeLog.updatedAll(updated);
+            chunk.forEach(book -> bookCache.invalidate(book.id()));
+        });
+        return new BookBulkOut(affected, affected, false);
+    }
+
+    /**
+     * Deletes every book matching a Specification<Book>, one chunk per transaction as in updateBooks
+     *
+     * @param bookSpec specification with filters for searching books
+     * @param dryRun   true to only count the matching books
+     * @return BookBulkOut with the number of matching and deleted books
+     * @throws ResponseException 400 BAD REQUEST if no filter was informed
+     */
+    public BookBulkOut deleteBooks(Specification<Book> bookSpec, boolean dryRun) throws ResponseException {
+        if (bookSpec == null) {
+            throw new ResponseException(BookError.BULK_FILTER_REQUIRED);
+        }
+        Specification<Book> spec = rejectingMalformedDates(bookSpec);
+        if (dryRun) {
+            long matched = bookRepo.countMatching(spec);
+            return new BookBulkOut(matched, 0, true);
+        }
+        long affected = forEachChunk(spec, chunk -> {
+            List<Integer> ids = chunk.stream().map(BookRecordOut::id).toList();
+            bookRepo.deleteByIdIn(ids);
+        }, chunk -> {
+            for (BookRecordOut book : chunk) {
+                titleIndex.remove(book.id(), book.title());
+                dateHistogram.remove(book.publishedDate());
+            }
+            changeLog.deletedAll(chunk.stream().map(BookRecordOut::id).toList());
+            chunk.forEach(book -> bookCache.invalidate(book.id()));
+        });
+        return new BookBulkOut(affected, affected, false);
+    }
+
+    /**
+     * Reads the books matching a specification in chunks by ascending id and writes each chunk in its own
+     * transaction. The keyset moves past the last id of every chunk, so books written by a chunk are never read again
+     * even if they no longer match or now match the filters
+     *
+     * @param bookSpec specification with filters for searching books
+     * @param write    writes a chunk, runs inside the transaction
+     * @param written  updates the in-memory indexes for a chunk, runs after the transaction commits
+     * @return number of written books
+     */
+    private long forEachChunk(Specification<Book> bookSpec, Consumer<List<BookRecordOut>> write,
+                              Consumer<List<BookRecordOut>> written) {
+        int chunkSize = bookProperties.getBatch().getChunkSize();
+        BookKeyset after = null;
+        long affected = 0;
+        while (true) {
+            BookKeyset position = after;
+            List<BookRecordOut> chunk = transactionTemplate.execute(status -> {
+                List<BookRecordOut> books = bookRepo.findPage(bookSpec, BookSort.ID_ASC, position, chunkSize);
+                if (!books.isEmpty()) {
+                    write.accept(books);
+                }
+                return books;
+            });
+            if (chunk == null || chunk.isEmpty()) {
+                break;
+            }
+            written.accept(chunk);
+            catalogueVersion.changed();
+            affected += chunk.size();
+            if (chunk.size() < chunkSize) {
+                break;
+            }
+            after = new BookKeyset(BookSort.ID_ASC, chunk.get(chunk.size() - 1).id(), null);
+        }
+        return affected;
+    }
 }
@@ -0,0 +1,56 @@
+package com.salomao.springassignment.service;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Period the books of a stats request are counted by
+ */
+public enum BookStatsBucket {
+    YEAR(ChronoUnit.YEARS),
+    MONTH(ChronoUnit.MONTHS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    BookStatsBucket(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    /**
+     * @param date any date
+     * @return first date of the bucket holding the date
+     */
+    public LocalDate truncate(LocalDate date) {
+        return switch (this) {
+            case YEAR -> date.withDayOfYear(1);
+            case MONTH -> date.withDayOfMonth(1);
+            case DAY -> date;
+        };
+    }
+
+    /**
+     * @param first first date of a range
+     * @param last  last date of a range
+     * @return number of buckets the range spans
+     */
+    long count(LocalDate first, LocalDate last) {
+        return unit.between(truncate(first), truncate(last)) + 1;
+    }
+
+    /**
+     * @param first first date of a range
+     * @param last  last date of a range
+     * @return first date of every bucket the range spans, the first bucket starting at the first date of the range
+     */
+    LocalDate[] starts(LocalDate first, LocalDate last) {
+        LocalDate[] starts = new LocalDate[Math.toIntExact(count(first, last))];
+        starts[0] = first;
+        LocalDate start = truncate(first);
+        for (int i = 1; i < starts.length; i++) {
+            start = start.plus(1, unit);
+            starts[i] = start;
+        }
+        return starts;
+    }
+}
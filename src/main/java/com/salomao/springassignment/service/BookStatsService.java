@@ -0,0 +1,100 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.index.DayHistogram;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookStatsBucketOut;
+import com.salomao.springassignment.web.dto.BookStatsOut;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+@Service
+@RequiredArgsConstructor
+public class BookStatsService {
+
+    private final BookRepository bookRepo;
+
+    private final BookDateHistogram dateHistogram;
+
+    private final BookProperties bookProperties;
+
+    /**
+     * Counts the books published in a range of dates, per bucket. Served from the in-memory histogram when the range
+     * is inside of its window, so the cost depends on the number of buckets only, and from the database otherwise
+     *
+     * @param from   first date of the range, null for the earliest publication date
+     * @param to     last date of the range, null for the latest publication date
+     * @param bucket period the books are counted by
+     * @return BookStatsOut with the total of the range and the count of every bucket, without buckets if the catalogue
+     * is empty or an open range starts after the latest or ends before the earliest publication date
+     * @throws ResponseException 400 BAD REQUEST if the range ends before it starts or spans more buckets than the
+     *                           configured maximum
+     */
+    public BookStatsOut getStats(LocalDate from, LocalDate to, BookStatsBucket bucket) throws ResponseException {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseException(BookError.STATS_RANGE);
+        }
+        DayHistogram histogram = dateHistogram.histogram().orElse(null);
+        // an open range ends at the earliest or latest book, which the window only knows if it holds every book
+        if (histogram != null && (from != null && to != null || histogram.inside() == histogram.total())) {
+            LocalDate first = from != null ? from : histogram.first();
+            LocalDate last = to != null ? to : histogram.last();
+            // an empty catalogue, or one bound outside of the publication dates, leaves nothing to count
+            if (first == null || last == null || first.isAfter(last)) {
+                return new BookStatsOut(from, to, bucket, 0, histogram.total(), List.of());
+            }
+            if (histogram.covers(first) && histogram.covers(last)) {
+                LocalDate[] starts = starts(first, last, bucket);
+                return stats(first, last, bucket, starts, histogram.counts(starts, last), histogram.total());
+            }
+        }
+        return getStatsFromDatabase(from, to, bucket);
+    }
+
+    /**
+     * Counts the books published in a range of dates with a query grouped by publication date
+     */
+    private BookStatsOut getStatsFromDatabase(LocalDate from, LocalDate to, BookStatsBucket bucket)
+            throws ResponseException {
+        Object[] summary = bookRepo.summarizePublishedDates().get(0);
+        long catalogueTotal = (Long) summary[2];
+        LocalDate first = from != null ? from : (LocalDate) summary[0];
+        LocalDate last = to != null ? to : (LocalDate) summary[1];
+        if (first == null || last == null || first.isAfter(last)) {
+            return new BookStatsOut(from, to, bucket, 0, catalogueTotal, List.of());
+        }
+        LocalDate[] starts = starts(first, last, bucket);
+        long[] counts = new long[starts.length];
+        for (Object[] row : bookRepo.countByPublishedDateBetween(first, last)) {
+            int position = Arrays.binarySearch(starts, (LocalDate) row[0]);
+            counts[position >= 0 ? position : -position - 2] += (Long) row[1];
+        }
+        return stats(first, last, bucket, starts, counts, catalogueTotal);
+    }
+
+    private LocalDate[] starts(LocalDate first, LocalDate last, BookStatsBucket bucket) throws ResponseException {
+        if (bucket.count(first, last) > bookProperties.getStats().getMaxBuckets()) {
+            throw new ResponseException(BookError.STATS_TOO_MANY_BUCKETS);
+        }
+        return bucket.starts(first, last);
+    }
+
+    private static BookStatsOut stats(LocalDate first, LocalDate last, BookStatsBucket bucket, LocalDate[] starts,
+                                      long[] counts, long catalogueTotal) {
+        List<BookStatsBucketOut> buckets = new ArrayList<>(starts.length);
+        long total = 0;
+        for (int i = 0; i < starts.length; i++) {
+            buckets.add(new BookStatsBucketOut(bucket.truncate(starts[i]), counts[i]));
+            total += counts[i];
+        }
+        return new BookStatsOut(first, last, bucket, total, catalogueTotal, buckets);
+    }
+}
@@ -0,0 +1,45 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.web.dto.BookSnapshotOut;
+import com.salomao.springassignment.web.message.BookMessages;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Actuator endpoint writing a snapshot of the catalogue, POST /actuator/booksnapshot
+ */
+@Component
+@Endpoint(id = "booksnapshot")
+@RequiredArgsConstructor
+public class BookSnapshotEndpoint {
+
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    private final BookSnapshotService snapshotService;
+
+    private final BookMessages messages;
+
+    /**
+     * @param file name of the snapshot, relative to the snapshot directory. Named after the current time if absent
+     * @return BookSnapshotOut with the number of written books
+     */
+    @WriteOperation
+    public BookSnapshotOut write(@Nullable String file) {
+        String fileName = file != null ? file : "books-" + LocalDateTime.now().format(FILE_TIMESTAMP) + ".snapshot";
+        try {
+            return snapshotService.write(fileName);
+        } catch (ResponseException e) {
+            throw new ResponseStatusException(e.getCode(),
+                    messages.get(e, LocaleContextHolder.getLocale()), e);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.repository.BookRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the snapshot set by book.snapshot.load-on-startup into an empty catalogue. It runs before any other runner,
+ * so the catalogue is complete before the warm-up and before the application reports ready. A catalogue that already
+ * holds books, as a persistent store does after its first start, is left as it is
+ */
+@Slf4j
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class BookSnapshotLoader implements ApplicationRunner {
+
+    private final BookSnapshotService snapshotService;
+
+    private final BookRepository bookRepo;
+
+    private final BookProperties.Snapshot config;
+
+    public BookSnapshotLoader(BookSnapshotService snapshotService, BookRepository bookRepo,
+                              BookProperties bookProperties) {
+        this.snapshotService = snapshotService;
+        this.bookRepo = bookRepo;
+        this.config = bookProperties.getSnapshot();
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws ResponseException {
+        String snapshot = config.getLoadOnStartup();
+        if (snapshot == null || snapshot.isBlank()) {
+            return;
+        }
+        if (bookRepo.count() > 0) {
+            log.info("Catalogue is not empty, snapshot {} was not loaded", snapshot);
+            return;
+        }
+        snapshotService.load(snapshot);
+    }
+}
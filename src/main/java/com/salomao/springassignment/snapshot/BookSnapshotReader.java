@@ -0,0 +1,115 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.web.dto.BookRecordOut;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Reads the books of a snapshot written by BookSnapshotWriter
+ */
+public class BookSnapshotReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Inflater inflater = new Inflater();
+
+    private final DataInputStream in;
+
+    private byte[] buffer = new byte[256];
+
+    private int previousId;
+
+    private long count;
+
+    private boolean ended;
+
+    /**
+     * @param in stream the snapshot is read from, closed with the reader
+     * @throws IOException if the stream doesn't start with a snapshot header of a known version
+     */
+    public BookSnapshotReader(InputStream in) throws IOException {
+        DataInputStream header = new DataInputStream(in);
+        if (header.readInt() != BookSnapshotWriter.MAGIC) {
+            throw new IOException("Not a book snapshot");
+        }
+        int version = header.readInt();
+        if (version != BookSnapshotWriter.FORMAT_VERSION) {
+            throw new IOException("Unsupported snapshot format version " + version);
+        }
+        this.in = new DataInputStream(new BufferedInputStream(
+                new InflaterInputStream(in, inflater, BUFFER_SIZE), BUFFER_SIZE));
+    }
+
+    /**
+     * @return next book, or null after the last one
+     * @throws IOException if the snapshot is truncated or corrupt
+     */
+    public BookRecordOut next() throws IOException {
+        if (ended) {
+            return null;
+        }
+        try {
+            long distance = readVarLong();
+            if (distance == 0) {
+                ended = true;
+                long expected = in.readLong();
+                if (expected != count) {
+                    throw new IOException("Snapshot holds " + count + " books but declares " + expected);
+                }
+                return null;
+            }
+            int id = Math.toIntExact(previousId + distance);
+            long version = readVarLong();
+            long zigzag = readVarLong();
+            LocalDate publishedDate = LocalDate.ofEpochDay((zigzag >>> 1) ^ -(zigzag & 1));
+            BookRecordOut book = new BookRecordOut(id, readString(), readString(), publishedDate, version);
+            previousId = id;
+            count++;
+            return book;
+        } catch (EOFException e) {
+            throw new IOException("Snapshot is truncated after " + count + " books", e);
+        } catch (ArithmeticException | DateTimeException e) {
+            throw new IOException("Snapshot is corrupt after " + count + " books", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            in.close();
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private String readString() throws IOException {
+        int length = Math.toIntExact(readVarLong());
+        if (length > buffer.length) {
+            buffer = new byte[Math.max(length, buffer.length * 2)];
+        }
+        in.readFully(buffer, 0, length);
+        return new String(buffer, 0, length, StandardCharsets.UTF_8);
+    }
+
+    private long readVarLong() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Snapshot is corrupt after " + count + " books");
+    }
+}
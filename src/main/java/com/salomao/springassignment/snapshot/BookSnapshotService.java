@@ -0,0 +1,169 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.cache.CatalogueVersion;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import com.salomao.springassignment.web.dto.BookSnapshotOut;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes the book table to snapshots and loads them back. Loading inserts rows with their ids and versions in large
+ * JDBC batches, so a new instance gets the catalogue of a snapshot far faster than by importing it again
+ */
+@Slf4j
+@Service
+public class BookSnapshotService {
+
+    private final BookRepository bookRepo;
+
+    private final BookProperties.Snapshot config;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BookDateHistogram dateHistogram;
+
+    private final CatalogueVersion catalogueVersion;
+
+    public BookSnapshotService(BookRepository bookRepo, BookProperties bookProperties,
+                               TransactionTemplate transactionTemplate, BookDateHistogram dateHistogram,
+                               CatalogueVersion catalogueVersion) {
+        this.bookRepo = bookRepo;
+        this.config = bookProperties.getSnapshot();
+        this.transactionTemplate = transactionTemplate;
+        this.dateHistogram = dateHistogram;
+        this.catalogueVersion = catalogueVersion;
+    }
+
+    /**
+     * Writes every book to a snapshot of the snapshot directory. The snapshot is written to a temporary file and
+     * moved into place once complete, so a snapshot with the same name is only replaced by a complete one
+     *
+     * @param fileName name of the snapshot, relative to the snapshot directory
+     * @return BookSnapshotOut with the number of written books
+     * @throws ResponseException 400 BAD REQUEST if the file is outside of the snapshot directory, 500 INTERNAL
+     *                           SERVER ERROR if it can't be written
+     */
+    public BookSnapshotOut write(String fileName) throws ResponseException {
+        Path file = resolve(fileName);
+        long start = System.currentTimeMillis();
+        try {
+            Files.createDirectories(file.getParent());
+            Path temporary = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            try {
+                long books;
+                try (OutputStream out = Files.newOutputStream(temporary);
+                     BookSnapshotWriter writer = new BookSnapshotWriter(out)) {
+                    books = writeBooks(writer);
+                }
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                BookSnapshotOut snapshot = new BookSnapshotOut(file.getFileName().toString(), books,
+                        Files.size(file), System.currentTimeMillis() - start);
+                log.info("Snapshot {} of {} books written in {} ms", file, books, snapshot.millis());
+                return snapshot;
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException | UncheckedIOException e) {
+            log.error("Snapshot {} could not be written", file, e);
+            throw new ResponseException(BookError.SNAPSHOT_IO);
+        }
+    }
+
+    private long writeBooks(BookSnapshotWriter writer) {
+        return transactionTemplate.execute(status -> {
+            try (Stream<BookRecordOut> books = bookRepo.streamAll(null, config.getFetchSize())) {
+                Iterator<BookRecordOut> iterator = books.iterator();
+                while (iterator.hasNext()) {
+                    writer.write(iterator.next());
+                }
+                return writer.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Loads a snapshot into the empty catalogue, one chunk per transaction. If the snapshot turns out to be corrupt,
+     * the books loaded so far are deleted again. Must run before the application accepts requests: the uniqueness and
+     * title indexes are only warmed once it is ready
+     *
+     * @param fileName name of the snapshot, relative to the snapshot directory
+     * @return BookSnapshotOut with the number of loaded books
+     * @throws ResponseException 400 BAD REQUEST if the file doesn't exist, is outside of the snapshot directory or is
+     *                           corrupt, 409 CONFLICT if the catalogue isn't empty
+     */
+    BookSnapshotOut load(String fileName) throws ResponseException {
+        Path file = resolve(fileName);
+        if (!Files.isRegularFile(file)) {
+            throw new ResponseException(BookError.SNAPSHOT_FILE);
+        }
+        if (bookRepo.count() > 0) {
+            throw new ResponseException(BookError.SNAPSHOT_NOT_EMPTY);
+        }
+        long start = System.currentTimeMillis();
+        long books = 0;
+        int lastId = 0;
+        try (InputStream in = Files.newInputStream(file);
+             BookSnapshotReader reader = new BookSnapshotReader(in)) {
+            List<BookRecordOut> chunk = new ArrayList<>(config.getChunkSize());
+            for (BookRecordOut book = reader.next(); book != null; book = reader.next()) {
+                chunk.add(book);
+                lastId = book.id();
+                if (chunk.size() == config.getChunkSize()) {
+                    books += insert(chunk);
+                }
+            }
+            books += insert(chunk);
+        } catch (IOException | DataIntegrityViolationException e) {
+            log.error("Snapshot {} could not be loaded after {} books", file, books, e);
+            transactionTemplate.executeWithoutResult(status -> bookRepo.deleteAllRows());
+            throw new ResponseException(BookError.SNAPSHOT_CORRUPT);
+        }
+        bookRepo.restartIds(lastId);
+        dateHistogram.warm();
+        catalogueVersion.changed();
+        long bytes = file.toFile().length();
+        BookSnapshotOut snapshot = new BookSnapshotOut(file.getFileName().toString(), books, bytes,
+                System.currentTimeMillis() - start);
+        log.info("Snapshot {} of {} books loaded in {} ms", file, books, snapshot.millis());
+        return snapshot;
+    }
+
+    private int insert(List<BookRecordOut> chunk) {
+        int size = chunk.size();
+        if (size > 0) {
+            transactionTemplate.executeWithoutResult(status -> bookRepo.insertRecords(chunk));
+            chunk.clear();
+        }
+        return size;
+    }
+
+    private Path resolve(String fileName) throws ResponseException {
+        Path directory = config.getDirectory().toAbsolutePath().normalize();
+        Path file = directory.resolve(fileName).normalize();
+        if (!file.startsWith(directory) || file.equals(directory)) {
+            throw new ResponseException(BookError.SNAPSHOT_FILE);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,126 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.web.dto.BookRecordOut;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Writes books to a snapshot: a compact binary copy of the book table, loaded by new instances instead of replaying
+ * inserts.
+ * <p>
+ * A snapshot starts with the MAGIC and FORMAT_VERSION integers, followed by the deflated rows in ascending id order.
+ * Every row is the distance to the previous id, the version, the zigzag encoded epoch day of the publication date and
+ * the length prefixed UTF-8 title and ISBN, numbers as variable length integers. A 0 distance ends the rows and is
+ * followed by the number of rows, checked by the reader
+ */
+public class BookSnapshotWriter implements Closeable {
+
+    static final int MAGIC = 0x424B534E;
+
+    static final int FORMAT_VERSION = 1;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+    private final DeflaterOutputStream deflated;
+
+    private final DataOutputStream out;
+
+    private int previousId;
+
+    private long count;
+
+    private boolean finished;
+
+    /**
+     * @param out stream the snapshot is written to, closed with the writer
+     * @throws IOException if the header can't be written
+     */
+    public BookSnapshotWriter(OutputStream out) throws IOException {
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(MAGIC);
+        header.writeInt(FORMAT_VERSION);
+        this.deflated = new DeflaterOutputStream(out, deflater, BUFFER_SIZE, true);
+        this.out = new DataOutputStream(new BufferedOutputStream(deflated, BUFFER_SIZE));
+    }
+
+    /**
+     * @param book book to be written, with an id greater than the one of the previous book
+     * @throws IOException if the book can't be written
+     */
+    public void write(BookRecordOut book) throws IOException {
+        if (book.id() <= previousId) {
+            throw new IllegalArgumentException("Books must be written in ascending id order");
+        }
+        writeVarLong(book.id() - previousId);
+        writeVarLong(book.version() == null ? 0 : book.version());
+        long epochDay = book.publishedDate().toEpochDay();
+        writeVarLong((epochDay << 1) ^ (epochDay >> 63));
+        writeString(book.title());
+        writeString(book.isbn());
+        previousId = book.id();
+        count++;
+    }
+
+    /**
+     * Pushes the books written so far to the stream, so a reader of a streamed snapshot gets them without waiting for
+     * the end
+     *
+     * @throws IOException if the books can't be written
+     */
+    public void flush() throws IOException {
+        out.flush();
+    }
+
+    /**
+     * Writes the end of the snapshot and completes the deflated data, leaving the stream open
+     *
+     * @return number of written books
+     * @throws IOException if the end can't be written
+     */
+    public long finish() throws IOException {
+        if (!finished) {
+            writeVarLong(0);
+            out.writeLong(count);
+            out.flush();
+            deflated.finish();
+            deflater.end();
+            finished = true;
+        }
+        return count;
+    }
+
+    /**
+     * Closes the stream. A snapshot closed without finish is incomplete and refused by the reader
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            out.close();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private void writeString(String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(bytes.length);
+        out.write(bytes);
+    }
+
+    private void writeVarLong(long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+}
@@ -0,0 +1,64 @@
+package com.salomao.springassignment.startup;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Measures the time from the start of the JVM to the first request served once the application reported ready,
+ * published as book.startup.first.request. The time to ready itself is published by Spring Boot as
+ * application.ready.time. Warm-up requests are sent before the application is ready, so they are not counted
+ */
+@Slf4j
+@Component
+public class StartupTimer extends OncePerRequestFilter {
+
+    private final AtomicBoolean recorded = new AtomicBoolean();
+
+    private volatile boolean ready;
+
+    private volatile double firstRequestSeconds = Double.NaN;
+
+    public StartupTimer(MeterRegistry registry) {
+        Gauge.builder("book.startup.first.request", this, timer -> timer.firstRequestSeconds)
+                .description("Time from the start of the JVM to the end of the first request served once ready")
+                .baseUnit("seconds")
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ready(ApplicationReadyEvent event) {
+        ready = true;
+        log.info("Ready {} ms after the JVM started", ManagementFactory.getRuntimeMXBean().getUptime());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        chain.doFilter(request, response);
+        // asynchronous requests end on their async dispatch, which is filtered again
+        if (ready && !recorded.get() && !isAsyncStarted(request) && recorded.compareAndSet(false, true)) {
+            long uptime = ManagementFactory.getRuntimeMXBean().getUptime();
+            firstRequestSeconds = uptime / 1000.0;
+            log.info("First request {} {} served {} ms after the JVM started", request.getMethod(),
+                    request.getRequestURI(), uptime);
+        }
+    }
+
+    @Override
+    protected boolean shouldNotFilterAsyncDispatch() {
+        return false;
+    }
+}
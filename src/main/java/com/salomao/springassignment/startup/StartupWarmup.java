@@ -0,0 +1,119 @@
+package com.salomao.springassignment.startup;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salomao.springassignment.config.BookProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ApplicationContext;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends a burst of read requests to the application before it reports ready, so the first real requests find the
+ * request path loaded, initialized and compiled instead of paying for it. Runners are called once the web server is
+ * listening and before the readiness state changes to ACCEPTING_TRAFFIC, so the burst never competes with real
+ * traffic. Only GET endpoints are called: the warm-up never changes the catalogue
+ */
+@Slf4j
+@Component
+public class StartupWarmup implements ApplicationRunner {
+
+    private final BookProperties.Startup config;
+
+    private final ApplicationContext context;
+
+    private final ObjectMapper objectMapper;
+
+    public StartupWarmup(BookProperties bookProperties, ApplicationContext context, ObjectMapper objectMapper) {
+        this.config = bookProperties.getStartup();
+        this.context = context;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void run(ApplicationArguments args) throws Exception {
+        if (config.getWarmupRequests() > 0 && context instanceof WebServerApplicationContext webContext) {
+            warmUp(URI.create("http://localhost:" + webContext.getWebServer().getPort()));
+        }
+        if (config.isExitAfterWarmup()) {
+            System.exit(SpringApplication.exit(context));
+        }
+    }
+
+    private void warmUp(URI base) throws InterruptedException {
+        long start = System.currentTimeMillis();
+        HttpClient client = HttpClient.newHttpClient();
+        List<URI> targets = targets(client, base);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(config.getWarmupThreads());
+        for (int i = 0; i < config.getWarmupThreads(); i++) {
+            executor.execute(() -> {
+                for (int n = next.getAndIncrement(); n < config.getWarmupRequests(); n = next.getAndIncrement()) {
+                    try {
+                        HttpRequest request = HttpRequest.newBuilder(targets.get(n % targets.size())).build();
+                        if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() >= 500) {
+                            failed.incrementAndGet();
+                        }
+                    } catch (IOException e) {
+                        failed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination(1, TimeUnit.HOURS);
+        log.info("Warm-up sent {} requests in {} ms, {} failed", config.getWarmupRequests(),
+                System.currentTimeMillis() - start, failed.get());
+    }
+
+    /**
+     * Builds the warm-up requests: a listing, its books one by one, a title search and the statistics
+     *
+     * @param client HTTP client
+     * @param base   address of the application
+     * @return URIs to be requested in turns
+     */
+    private List<URI> targets(HttpClient client, URI base) throws InterruptedException {
+        List<URI> targets = new ArrayList<>();
+        targets.add(base.resolve("/book?limit=50"));
+        targets.add(base.resolve("/book?sort=PUBLISHED_DATE_DESC&limit=50"));
+        targets.add(base.resolve("/book/stats"));
+        try {
+            HttpRequest listing = HttpRequest.newBuilder(base.resolve("/book?limit=50")).build();
+            JsonNode books = objectMapper.readTree(client.send(listing, HttpResponse.BodyHandlers.ofString()).body())
+                    .path("books");
+            for (JsonNode book : books) {
+                targets.add(base.resolve("/book/" + book.path("id").asInt()));
+            }
+            if (books.size() > 0) {
+                String title = books.get(0).path("title").asText();
+                String fragment = title.substring(0, Math.min(title.length(), 5)).replaceAll("[^A-Za-z0-9]", "");
+                if (!fragment.isEmpty()) {
+                    targets.add(base.resolve("/book?title=" + fragment + "&limit=50"));
+                }
+            }
+        } catch (IOException e) {
+            log.warn("Warm-up could not read the catalogue, only listings will be requested", e);
+        }
+        return targets;
+    }
+}
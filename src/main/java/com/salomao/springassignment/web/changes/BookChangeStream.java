@@ -0,0 +1,150 @@
+package com.salomao.springassignment.web.changes;
+
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.web.dto.BookChangeOut;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Server-Sent Events consumers of the change log. Consumers hold no buffer of their own, only their position in the
+ * log: every publication schedules a flush that sends the changes after that position in batches, so a slow consumer
+ * costs memory for nothing but its position, and one that falls behind the capacity of the log gets a 'reset' event
+ * and is disconnected
+ */
+@Slf4j
+@Component
+public class BookChangeStream {
+
+    private final BookChangeLog changeLog;
+
+    private final BookProperties.Changes config;
+
+    private final ThreadPoolTaskScheduler scheduler;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public BookChangeStream(BookChangeLog changeLog, BookProperties bookProperties) {
+        this.changeLog = changeLog;
+        this.config = bookProperties.getChanges();
+        this.scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(config.getDeliveryThreads());
+        scheduler.setThreadNamePrefix("book-changes-");
+        scheduler.initialize();
+        scheduler.scheduleAtFixedRate(this::heartbeat, config.getHeartbeat());
+        changeLog.addListener(() -> subscribers.forEach(this::schedule));
+    }
+
+    /**
+     * Opens a stream of changes
+     *
+     * @param after position of the last change already seen, null to receive only changes published from now on
+     * @return SseEmitter sending 'changes' events, whose data is a list of BookChangeOut and whose id is the position
+     * of the last change of the event, and a 'reset' event if the consumer missed changes or resumes from a position
+     * of another run
+     * @throws ResponseException 503 SERVICE UNAVAILABLE if the maximum number of consumers is reached
+     */
+    public SseEmitter subscribe(String after) throws ResponseException {
+        if (subscribers.size() >= config.getMaxSubscribers()) {
+            throw new ResponseException(BookError.SERVER_BUSY);
+        }
+        Subscriber subscriber = new Subscriber(new SseEmitter(config.getTimeout().toMillis()),
+                after != null ? changeLog.sequenceOf(after) : changeLog.latest());
+        subscriber.emitter.onCompletion(() -> close(subscriber));
+        subscriber.emitter.onTimeout(() -> close(subscriber));
+        subscriber.emitter.onError(e -> close(subscriber));
+        subscribers.add(subscriber);
+        schedule(subscriber);
+        return subscriber.emitter;
+    }
+
+    private void schedule(Subscriber subscriber) {
+        if (!subscriber.closed && subscriber.scheduled.compareAndSet(false, true)) {
+            scheduler.execute(() -> flush(subscriber));
+        }
+    }
+
+    /**
+     * Sends the next batch of changes of a consumer and schedules another flush if more are pending, so consumers
+     * far behind take turns with the others instead of holding a delivery thread until they catch up
+     */
+    private void flush(Subscriber subscriber) {
+        try {
+            BookChangeLog.ChangeBatch batch = changeLog.read(subscriber.position, config.getBatchSize());
+            if (batch.gap()) {
+                subscriber.emitter.send(SseEmitter.event().name("reset").data(Map.of("latest", changeLog.positionOf(batch.latest())),
+                        MediaType.APPLICATION_JSON));
+                subscriber.emitter.complete();
+                close(subscriber);
+                return;
+            }
+            List<BookChangeOut> changes = batch.changes();
+            if (!changes.isEmpty()) {
+                long last = changes.get(changes.size() - 1).sequence();
+                subscriber.emitter.send(SseEmitter.event()
+                        .name("changes")
+                        .id(changeLog.positionOf(last))
+                        .data(changes, MediaType.APPLICATION_JSON));
+                subscriber.position = last;
+            }
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Change stream consumer went away", e);
+            close(subscriber);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        if (changeLog.latest() > subscriber.position) {
+            schedule(subscriber);
+        }
+    }
+
+    private void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            try {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            } catch (IOException | IllegalStateException e) {
+                close(subscriber);
+            }
+        }
+    }
+
+    private void close(Subscriber subscriber) {
+        subscriber.closed = true;
+        subscribers.remove(subscriber);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+        scheduler.shutdown();
+    }
+
+    private static class Subscriber {
+
+        private final SseEmitter emitter;
+
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+
+        private volatile long position;
+
+        private volatile boolean closed;
+
+        Subscriber(SseEmitter emitter, long position) {
+            this.emitter = emitter;
+            this.position = position;
+        }
+    }
+}
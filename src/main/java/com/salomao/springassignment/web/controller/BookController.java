@@ -1,66 +1,159 @@
 package com.salomao.springassignment.web.controller;
 
-import com.salomao.springassignment.error.ApiError;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salomao.springassignment.cache.CatalogueVersion;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.config.WebMvcConfig;
 import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.metrics.BookMetrics;
 import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.repository.BookSort;
 import com.salomao.springassignment.service.BookService;
+import com.salomao.springassignment.service.BookStatsBucket;
+import com.salomao.springassignment.service.BookStatsService;
+import com.salomao.springassignment.web.changes.BookChangeStream;
+import com.salomao.springassignment.web.dto.BookBatchOut;
+import com.salomao.springassignment.web.dto.BookBulkOut;
+import com.salomao.springassignment.web.dto.BookBulkUpdateIn;
+import com.salomao.springassignment.web.dto.BookLookupIn;
+import com.salomao.springassignment.web.dto.BookLookupOut;
+import com.salomao.springassignment.web.dto.BookPageOut;
 import com.salomao.springassignment.web.dto.BookRecordIn;
 import com.salomao.springassignment.web.dto.BookRecordOut;
+import com.salomao.springassignment.web.dto.BookStatsOut;
 import com.salomao.springassignment.web.dto.InsertResponseDTO;
+import com.salomao.springassignment.web.etag.BookETags;
+import com.salomao.springassignment.web.execution.BookRequestExecutor;
+import com.salomao.springassignment.web.message.BookMessages;
+import com.salomao.springassignment.web.export.BookExportFormat;
+import com.salomao.springassignment.web.export.BookExportWriter;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import lombok.RequiredArgsConstructor;
-import lombok.extern.slf4j.Slf4j;
 import net.kaczmarzyk.spring.data.jpa.domain.Between;
 import net.kaczmarzyk.spring.data.jpa.domain.Like;
 import net.kaczmarzyk.spring.data.jpa.web.annotation.And;
+import net.kaczmarzyk.spring.data.jpa.web.annotation.OnTypeMismatch;
 import net.kaczmarzyk.spring.data.jpa.web.annotation.Spec;
-import org.springframework.context.MessageSource;
 import org.springframework.data.jpa.domain.Specification;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.web.bind.annotation.*;
-import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.validation.Valid;
+import java.time.LocalDate;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
 
 @RestController
 @RequestMapping("/book")
 @RequiredArgsConstructor
-@Slf4j
 public class BookController {
 
     private final BookService bookService;
 
-    private final MessageSource messageSource;
+    private final BookStatsService bookStatsService;
+
+    private final BookMessages messages;
+
+    private final ObjectMapper objectMapper;
+
+    private final BookMetrics bookMetrics;
+
+    private final BookRequestExecutor requestExecutor;
+
+    private final CatalogueVersion catalogueVersion;
+
+    private final BookChangeStream changeStream;
+
+    private final BookProperties bookProperties;
 
     /**
-     * Returns a single BookRecord
+     * Returns a single BookRecord, tagged with its ETag
      *
-     * @param id      id of the Book
-     * @param request HttpServletRequest
-     * @return ResponseEntity with StatusCode 200 and single BookRecord or StatusCode 404 NOT FOUND
+     * @param id          id of the Book
+     * @param ifNoneMatch ETags already held by the client
+     * @param accept      media types accepted by the client, each representation has its own ETag
+     * @return ResponseEntity with StatusCode 200 and single BookRecord, StatusCode 304 NOT MODIFIED if the client
+     * holds the current version or StatusCode 404 NOT FOUND
      */
     @GetMapping("/{id}")
     @Operation(summary = "Get book",
-            responses = {@ApiResponse(responseCode = "404", description = "Book was not found")}
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookRecordOut.class))),
+                @ApiResponse(responseCode = "404", description = "Book was not found")}
     )
-    public ResponseEntity<BookRecordOut> getBook(@PathVariable Integer id, HttpServletRequest request) {
-        try {
-            return ResponseEntity.ok(bookService.getBookById(id));
-        } catch (ResponseException e) {
-            log.error("Error retrieving book with id {}", id);
-            throw new ResponseStatusException(e.getCode(),
-                    String.format(messageSource.getMessage(e.getMessage(), null, request.getLocale()), id), e);
+    public CompletableFuture<ResponseEntity<BookRecordOut>> getBook(@PathVariable Integer id,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH,
+                                                                            required = false) String ifNoneMatch,
+                                                                    @Parameter(hidden = true)
+                                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return requestExecutor.execute(() -> {
+            BookRecordOut book = bookService.getBookById(id);
+            String etag = BookETags.of(book, BookETags.representationOf(accept));
+            if (BookETags.isNotModified(ifNoneMatch, etag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build();
+            }
+            return ResponseEntity.ok().eTag(etag).body(book);
+        });
+    }
+
+    /**
+     * Returns the BookRecords of several ids in one response, tagged with the catalogue ETag like listings
+     *
+     * @param ids         comma separated book ids
+     * @param ifNoneMatch ETags already held by the client
+     * @param accept      media types accepted by the client, each representation has its own ETag
+     * @return ResponseEntity with StatusCode 200 and the books found, StatusCode 304 NOT MODIFIED or StatusCode 400
+     * BAD REQUEST if there are too many ids
+     */
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get Books by id",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookLookupOut.class))),
+                @ApiResponse(responseCode = "400", description = "No ids or too many ids")})
+    public CompletableFuture<ResponseEntity<BookLookupOut>> getBooksByIds(@Parameter(description = "Comma separated book ids")
+                                                                          @RequestParam("ids") List<Integer> ids,
+                                                                          @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                          @Parameter(hidden = true)
+                                                                          @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String etag = BookETags.ofCatalogue(catalogueVersion.current(), BookETags.representationOf(accept));
+        if (BookETags.isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
         }
+        return requestExecutor.execute(() -> ResponseEntity.ok().eTag(etag).body(bookService.getBooksByIds(ids)));
     }
 
     /**
-     * Returns a list of BookRecords
+     * Returns the BookRecords of several ids in one response, for id lists too long for a query string
+     *
+     * @param bookLookupIn ids of the books
+     * @return ResponseEntity with StatusCode 200 and the books found or StatusCode 400 BAD REQUEST if there are no
+     * ids or too many ids
+     */
+    @PostMapping("/lookup")
+    @Operation(summary = "Look up Books by id",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookLookupOut.class))),
+                @ApiResponse(responseCode = "400", description = "No ids or too many ids")})
+    public CompletableFuture<ResponseEntity<BookLookupOut>> postBookLookup(
+            @Valid @RequestBody BookLookupIn bookLookupIn) {
+        return requestExecutor.execute(() -> ResponseEntity.ok(bookService.getBooksByIds(bookLookupIn.ids())));
+    }
+
+    /**
+     * Returns a page of BookRecords
      *
      * @param bookSpec        specification with optional filters
      * @param title           optional filter
@@ -69,137 +162,354 @@ public class BookController {
      *                        uses 'yyyy-MM-dd' format.
      * @param publishedBefore optional filter. If one of the date params is informed, the other one must also be present.
      *                        uses 'yyyy-MM-dd' format.
-     * @return ResponseEntity with StatusCode 200 and List of BookRecords or StatusCode 400 BAD REQUEST
+     * @param sort            sort order of the listing
+     * @param cursor          nextCursor returned by the previous page, omitted for the first page
+     * @param limit           page size
+     * @param ifNoneMatch     ETags already held by the client. Listings are tagged with the catalogue version, so
+     *                        an unchanged catalogue is answered without running the query
+     * @param accept          media types accepted by the client, each representation has its own ETag
+     * @return ResponseEntity with StatusCode 200 and a page of BookRecords, StatusCode 304 NOT MODIFIED or
+     * StatusCode 400 BAD REQUEST
      */
     @GetMapping
     @Operation(summary = "Get List of Books",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookPageOut.class))),
+                @ApiResponse(responseCode = "400", description = "Invalid filters or cursor")})
+    public CompletableFuture<ResponseEntity<BookPageOut>> getBooks(@And({
+                                   @Spec(path = "title", spec = Like.class),
+                                   @Spec(path = "isbn", spec = Like.class),
+                                   @Spec(
+                                           path = "publishedDate",
+                                           params = {"publishedAfter", "publishedBefore"},
+                                           spec = Between.class,
+                                           config = "yyyy-MM-dd",
+                                           onTypeMismatch = OnTypeMismatch.EXCEPTION
+                                   )
+                           })
+                           @Parameter(hidden = true) Specification<Book> bookSpec,
+                           @Parameter(description = "Book title")
+                           @RequestParam(value = "title", required = false) String title,
+                           @Parameter(description = "Book's ISBN code")
+                           @RequestParam(value = "isbn", required = false) String isbn,
+                           @Parameter(description = "Date Range parameter indicating the beginning of the range. " +
+                                   "Inform date in the format: 'yyyy-MM-dd'")
+                           @RequestParam(value = "publishedAfter", required = false) String publishedAfter,
+                           @Parameter(description = "Date Range parameter indicating the end of the range. " +
+                                   "Inform date in the format: 'yyyy-MM-dd'")
+                           @RequestParam(value = "publishedBefore", required = false) String publishedBefore,
+                           @Parameter(description = "Sort order of the listing. RELEVANCE ranks title " +
+                                   "searches of at least three characters")
+                           @RequestParam(value = "sort", defaultValue = "ID_ASC") BookSort sort,
+                           @Parameter(description = "nextCursor returned by the previous page")
+                           @RequestParam(value = "cursor", required = false) String cursor,
+                           @Parameter(description = "Page size, capped by the server")
+                           @RequestParam(value = "limit", required = false) Integer limit,
+                           @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                           @Parameter(hidden = true)
+                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String etag = BookETags.ofCatalogue(catalogueVersion.current(), BookETags.representationOf(accept));
+        if (BookETags.isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return requestExecutor.execute(() -> {
+            BookPageOut page = bookService.getAllBooksBySpecification(bookSpec, title, sort, cursor, limit);
+            bookMetrics.recordListResults(page.books().size());
+            return ResponseEntity.ok().eTag(etag).body(page);
+        });
+    }
+
+    /**
+     * Returns the number of books published in a range of dates, per year, month or day
+     *
+     * @param from        first date of the range, defaults to the earliest publication date
+     * @param to          last date of the range, defaults to the latest publication date
+     * @param bucket      period the books are counted by
+     * @param ifNoneMatch ETags already held by the client, tagged with the catalogue version like listings
+     * @param accept      media types accepted by the client, each representation has its own ETag
+     * @return ResponseEntity with StatusCode 200 and the counts, StatusCode 304 NOT MODIFIED or StatusCode 400
+     * BAD REQUEST
+     */
+    @GetMapping("/stats")
+    @Operation(summary = "Get publication date statistics",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookStatsOut.class))),
+                @ApiResponse(responseCode = "400", description = "Invalid range or too many buckets")})
+    public CompletableFuture<ResponseEntity<BookStatsOut>> getStats(@Parameter(description = "First date of the range, in the format: 'yyyy-MM-dd'")
+                                                                    @RequestParam(value = "from", required = false)
+                                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @Parameter(description = "Last date of the range, in the format: 'yyyy-MM-dd'")
+                                                                    @RequestParam(value = "to", required = false)
+                                                                    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                                                    @Parameter(description = "Period the books are counted by")
+                                                                    @RequestParam(value = "bucket", defaultValue = "YEAR") BookStatsBucket bucket,
+                                                                    @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
+                                                                    @Parameter(hidden = true)
+                                                                    @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        String etag = BookETags.ofCatalogue(catalogueVersion.current(), BookETags.representationOf(accept));
+        if (BookETags.isNotModified(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).build());
+        }
+        return requestExecutor.execute(() ->
+                ResponseEntity.ok().eTag(etag).body(bookStatsService.getStats(from, to, bucket)));
+    }
+
+    /**
+     * Streams the changes of the catalogue as Server-Sent Events, so mirrors can sync incrementally. Changes come in
+     * 'changes' events holding a batch of BookChangeOut, identified by the position of their last change. A 'reset'
+     * event means the consumer missed changes and must resynchronize: note the 'latest' position it carries, reload
+     * the catalogue and tail again from that position
+     *
+     * @param after       position of the last change already seen, omitted to receive only new changes
+     * @param lastEventId position sent by reconnecting EventSource clients, takes precedence over after
+     * @return SseEmitter with the stream of changes or StatusCode 503 SERVICE UNAVAILABLE
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream catalogue changes",
+            responses = {@ApiResponse(responseCode = "503", description = "Too many consumers")})
+    public SseEmitter getChanges(@Parameter(description = "Event id of the last change already seen")
+                                 @RequestParam(value = "after", required = false) String after,
+                                 @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId)
+            throws ResponseException {
+        return changeStream.subscribe(lastEventId != null ? lastEventId : after);
+    }
+
+    /**
+     * Streams every book matching the filters, without loading the whole result in memory
+     *
+     * @param bookSpec        specification with optional filters
+     * @param title           optional filter
+     * @param isbn            optional filter
+     * @param publishedAfter  optional filter. If one of the date params is informed, the other one must also be present.
+     *                        uses 'yyyy-MM-dd' format.
+     * @param publishedBefore optional filter. If one of the date params is informed, the other one must also be present.
+     *                        uses 'yyyy-MM-dd' format.
+     * @param requestedFormat NDJSON (one BookRecord per line), CSV, CBOR (a CBOR sequence), SMILE or SNAPSHOT (the
+     *                        binary snapshot format). Optional, the Accept header picks the format if absent
+     * @param accept          Accept header, NDJSON if it names no export format
+     * @param request         request, given the export timeout instead of the default async timeout
+     * @return ResponseEntity with StatusCode 200 and the streamed books or StatusCode 400 BAD REQUEST
+     */
+    @GetMapping("/export")
+    @Operation(summary = "Export Books",
             responses = {@ApiResponse(responseCode = "400", description = "Invalid filters")})
-    public ResponseEntity<List<BookRecordOut>> getBooks(@And({
-            @Spec(path = "title", spec = Like.class),
-            @Spec(path = "isbn", spec = Like.class),
-            @Spec(
-                    path = "publishedDate",
-                    params = {"publishedAfter", "publishedBefore"},
-                    spec = Between.class,
-                    config = "yyyy-MM-dd"
-            )
-    })
-                                                     @Parameter(hidden = true) Specification<Book> bookSpec,
-                                                        @Parameter(description = "Book title")
-                                                     @RequestParam(value = "title", required = false) String title,
-                                                        @Parameter(description = "Book's ISBN code")
-                                                     @RequestParam(value = "isbn", required = false) String isbn,
-                                                        @Parameter(description = "Date Range parameter indicating the beginning of the range. " +
-                                                             "Inform date in the format: 'yyyy-MM-dd'")
-                                                     @RequestParam(value = "publishedAfter", required = false) String publishedAfter,
-                                                        @Parameter(description = "Date Range parameter indicating the end of the range. " +
-                                                             "Inform date in the format: 'yyyy-MM-dd'")
-                                                     @RequestParam(value = "publishedBefore", required = false) String publishedBefore) {
-        return ResponseEntity.ok(bookService.getAllBooksBySpecification(bookSpec));
+    public ResponseEntity<StreamingResponseBody> exportBooks(@And({
+                                                                     @Spec(path = "title", spec = Like.class),
+                                                                     @Spec(path = "isbn", spec = Like.class),
+                                                                     @Spec(
+                                                                             path = "publishedDate",
+                                                                             params = {"publishedAfter", "publishedBefore"},
+                                                                             spec = Between.class,
+                                                                             config = "yyyy-MM-dd",
+                                                                             onTypeMismatch = OnTypeMismatch.EXCEPTION
+                                                                     )
+                                                             })
+                                                             @Parameter(hidden = true) Specification<Book> bookSpec,
+                                                             @Parameter(description = "Book title")
+                                                             @RequestParam(value = "title", required = false) String title,
+                                                             @Parameter(description = "Book's ISBN code")
+                                                             @RequestParam(value = "isbn", required = false) String isbn,
+                                                             @Parameter(description = "Date Range parameter indicating the beginning of the range. " +
+                                                                     "Inform date in the format: 'yyyy-MM-dd'")
+                                                             @RequestParam(value = "publishedAfter", required = false) String publishedAfter,
+                                                             @Parameter(description = "Date Range parameter indicating the end of the range. " +
+                                                                     "Inform date in the format: 'yyyy-MM-dd'")
+                                                             @RequestParam(value = "publishedBefore", required = false) String publishedBefore,
+                                                             @Parameter(description = "Export format, taken from the Accept header if absent")
+                                                             @RequestParam(value = "format", required = false) BookExportFormat requestedFormat,
+                                                             @Parameter(hidden = true)
+                                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                             HttpServletRequest request) {
+        BookExportFormat format = requestedFormat == null ? BookExportFormat.negotiate(accept) : requestedFormat;
+        request.setAttribute(WebMvcConfig.ASYNC_TIMEOUT_ATTRIBUTE, bookProperties.getExport().getTimeout());
+        StreamingResponseBody body = out ->
+                bookService.exportBooks(bookSpec, BookExportWriter.of(format, out, objectMapper));
+        return ResponseEntity.ok()
+                .contentType(format.getMediaType())
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("books." + format.getExtension())
+                        .build()
+                        .toString())
+                .body(body);
     }
 
     /**
      * Creates a new Book and inserts it into the database
      *
      * @param bookRecordIn BookRecord object containing valid data for the book to be inserted
-     * @return ResponseEntity with StatusCode 201 CREATED and InsertResponse containing id and success message
-     * or StatusCode 400 BAD REQUEST and error message
+     * @return ResponseEntity with StatusCode 201 CREATED and InsertResponse containing id and success message,
+     * StatusCode 400 BAD REQUEST and error message or StatusCode 409 CONFLICT if the write should be retried
      */
     @PostMapping
     @Operation(summary = "Create Book",
-            responses = {@ApiResponse(responseCode = "400", description = "Bad request")})
-    public ResponseEntity<InsertResponseDTO> insertBook(@Valid @RequestBody BookRecordIn bookRecordIn,
-                                                        HttpServletRequest request) {
-        if (bookService.checkIfTitleAndISBNIsUnique(bookRecordIn.title(), bookRecordIn.isbn())) {
+            responses = {
+                @ApiResponse(responseCode = "201", content = @Content(schema = @Schema(implementation = InsertResponseDTO.class))),
+                @ApiResponse(responseCode = "400", description = "Bad request"),
+                @ApiResponse(responseCode = "409", description = "Another write of the title or ISBN is in progress")})
+    public CompletableFuture<ResponseEntity<InsertResponseDTO>> insertBook(@Valid @RequestBody BookRecordIn bookRecordIn,
+                                                                           HttpServletRequest request) {
+        Locale locale = request.getLocale();
+        return requestExecutor.execute(() -> {
             InsertResponseDTO response = bookService.insertBook(bookRecordIn);
-            response.setMessage(messageSource.getMessage(response.getMessage(), null, request.getLocale()));
+            response.setMessage(messages.get(response.getMessage(), locale));
             return ResponseEntity.status(HttpStatus.CREATED).body(response);
-        } else {
-            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
-                    messageSource.getMessage("error.book.notUnique", null, request.getLocale()));
-        }
+        });
+    }
+
+    /**
+     * Creates many books at once. Every book is validated and checked for uniqueness on its own, so invalid or
+     * duplicated books don't prevent the others from being inserted
+     *
+     * @param bookRecordIns books to be inserted
+     * @param request       request
+     * @return ResponseEntity with StatusCode 200 and the outcome of every book or StatusCode 400 BAD REQUEST
+     * if the batch is empty or too large
+     */
+    @PostMapping("/batch")
+    @Operation(summary = "Create Books in batch",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookBatchOut.class))),
+                @ApiResponse(responseCode = "400", description = "Batch is empty or too large")})
+    public CompletableFuture<ResponseEntity<BookBatchOut>> insertBooks(@RequestBody List<BookRecordIn> bookRecordIns,
+                                                                       HttpServletRequest request) {
+        Locale locale = request.getLocale();
+        return requestExecutor.execute(() -> {
+            BookBatchOut response = bookService.insertBooks(bookRecordIns);
+            response.items().forEach(item -> {
+                if (item.getId() == null) {
+                    bookMetrics.recordError(item.getMessage());
+                }
+                item.setMessage(messages.get(item.getMessage(), locale));
+            });
+            return ResponseEntity.ok(response);
+        });
     }
 
     /**
      * Updates an existing book
      * @param bookRecordIn information to be updated
      * @param id id of book to be updated
+     * @param ifMatch optional ETag the book must still have for the update to apply
      * @param request request
-     * @return ResponseEntity with StatusCode 200 and success message or StatusCode 404 NOT FOUND or 400 BAD REQUEST
+     * @return ResponseEntity with StatusCode 200 and success message or StatusCode 404 NOT FOUND, 400 BAD REQUEST,
+     * 409 CONFLICT or 412 PRECONDITION FAILED
      */
     @PutMapping("/{id}")
     @Operation(summary = "Update Book",
             responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = String.class))),
                 @ApiResponse(responseCode = "400", description = "Bad request"),
-                @ApiResponse(responseCode = "404", description = "Book was not found")
+                @ApiResponse(responseCode = "404", description = "Book was not found"),
+                @ApiResponse(responseCode = "409",
+                        description = "Book was updated concurrently or another write of the title or ISBN is in progress"),
+                @ApiResponse(responseCode = "412", description = "Book no longer matches If-Match")
 
             })
-    public ResponseEntity<String> updateBook(@RequestBody @Valid BookRecordIn bookRecordIn,
-                                             @PathVariable Integer id, HttpServletRequest request) {
-        try {
-            return ResponseEntity.ok(messageSource
-                                     .getMessage(bookService.updateBook(id, bookRecordIn),
-                                                 null,
-                                                 request.getLocale()));
-        } catch (ResponseException e) {
-            if (e.getCode().equals(HttpStatus.NOT_FOUND)) {
-                throw new ResponseStatusException(e.getCode(),
-                        String.format(messageSource.getMessage(e.getMessage(), null, request.getLocale()), id), e);
-            }
-            throw new ResponseStatusException(e.getCode(),
-                    messageSource.getMessage(e.getMessage(), null, request.getLocale()), e);
-        }
+    public CompletableFuture<ResponseEntity<String>> updateBook(@RequestBody @Valid BookRecordIn bookRecordIn,
+                                                                @PathVariable Integer id,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                                        required = false) String ifMatch,
+                                                                HttpServletRequest request) {
+        Locale locale = request.getLocale();
+        return requestExecutor.execute(() ->
+                ResponseEntity.ok(messages.get(bookService.updateBook(id, bookRecordIn, ifMatch), locale)));
     }
 
     @DeleteMapping("/{id}")
     @Operation(summary = "Deletes a book",
-            responses = {@ApiResponse(responseCode = "400", description = "Invalid filters")})
-    public ResponseEntity<String> deleteBook(@PathVariable Integer id, HttpServletRequest request) {
-        try {
-            return ResponseEntity.ok(messageSource.getMessage(bookService.deleteBook(id), null, request.getLocale()));
-        } catch (ResponseException e) {
-            throw new ResponseStatusException(e.getCode(),
-                    String.format(messageSource.getMessage(e.getMessage(), null, request.getLocale()), id), e);
-        }
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = String.class))),
+                @ApiResponse(responseCode = "400", description = "Invalid filters"),
+                @ApiResponse(responseCode = "412", description = "Book no longer matches If-Match")})
+    public CompletableFuture<ResponseEntity<String>> deleteBook(@PathVariable Integer id,
+                                                                @RequestHeader(value = HttpHeaders.IF_MATCH,
+                                                                        required = false) String ifMatch,
+                                                                HttpServletRequest request) {
+        Locale locale = request.getLocale();
+        return requestExecutor.execute(() ->
+                ResponseEntity.ok(messages.get(bookService.deleteBook(id, ifMatch), locale)));
     }
 
     /**
-     * Handles IllegalArgumentExceptions, especially one thrown if one of the date range parameters is informed
-     * but the other one is not
+     * Sets the publication date of every book matching the filters, in chunks of bounded transaction size
      *
-     * @param e IllegalArgumentException to be handled
-     * @return ApiError object
+     * @param bookSpec         specification with filters for searching books
+     * @param bookBulkUpdateIn fields to be set
+     * @param dryRun           true to only count the matching books
+     * @return ResponseEntity with StatusCode 200 and the number of matching and updated books or StatusCode 400
+     * BAD REQUEST if no filter was informed
      */
-    @ExceptionHandler({IllegalArgumentException.class})
-    public ApiError handleException(IllegalArgumentException e) {
-        if (e.getMessage().contains("expected 2 http")) {
-            log.error("Bad request: only one date range parameter was informed", e);
-            return new ApiError(HttpStatus.BAD_REQUEST.value(),
-                    "Bad Request",
-                    "If filtering by date, both before and after dates must be informed");
-        } else {
-            log.error("Bad request: illegalArgumentException", e);
-            return new ApiError(HttpStatus.BAD_REQUEST.value(), "Bad Request", "Bad request");
-        }
+    @PatchMapping
+    @Operation(summary = "Update Books in bulk",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookBulkOut.class))),
+                @ApiResponse(responseCode = "400", description = "Missing or invalid filters")})
+    public CompletableFuture<ResponseEntity<BookBulkOut>> updateBooks(@And({
+                                      @Spec(path = "title", spec = Like.class),
+                                      @Spec(path = "isbn", spec = Like.class),
+                                      @Spec(
+                                              path = "publishedDate",
+                                              params = {"publishedAfter", "publishedBefore"},
+                                              spec = Between.class,
+                                              config = "yyyy-MM-dd",
+                                              onTypeMismatch = OnTypeMismatch.EXCEPTION
+                                      )
+                              })
+                              @Parameter(hidden = true) Specification<Book> bookSpec,
+                              @Parameter(description = "Book title")
+                              @RequestParam(value = "title", required = false) String title,
+                              @Parameter(description = "Book's ISBN code")
+                              @RequestParam(value = "isbn", required = false) String isbn,
+                              @Parameter(description = "Date Range parameter indicating the beginning of the range. " +
+                                      "Inform date in the format: 'yyyy-MM-dd'")
+                              @RequestParam(value = "publishedAfter", required = false) String publishedAfter,
+                              @Parameter(description = "Date Range parameter indicating the end of the range. " +
+                                      "Inform date in the format: 'yyyy-MM-dd'")
+                              @RequestParam(value = "publishedBefore", required = false) String publishedBefore,
+                              @Parameter(description = "Only count the matching books")
+                              @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun,
+                              @RequestBody @Valid BookBulkUpdateIn bookBulkUpdateIn) {
+        return requestExecutor.execute(() ->
+                ResponseEntity.ok(bookService.updateBooks(bookSpec, bookBulkUpdateIn, dryRun)));
     }
 
     /**
-     * Handles HttpMessageNotReadableException, especially if thrown when the date format is incorrect
+     * Deletes every book matching the filters, in chunks of bounded transaction size
      *
-     * @param e IllegalArgumentException to be handled
-     * @return ApiError object
+     * @param bookSpec specification with filters for searching books
+     * @param dryRun   true to only count the matching books
+     * @return ResponseEntity with StatusCode 200 and the number of matching and deleted books or StatusCode 400
+     * BAD REQUEST if no filter was informed
      */
-    @ExceptionHandler({HttpMessageNotReadableException.class})
-    public ApiError handleException(HttpMessageNotReadableException e) {
-        if (e.getMessage().contains("Cannot deserialize value of type `java.time.LocalDate` from String")) {
-            log.error("Bad request: Invalid date format", e);
-            return new ApiError(HttpStatus.BAD_REQUEST.value(),
-                    "Bad Request",
-                    "Dates must be informed in 'yyyy-MM-dd' format");
-        } else {
-            log.error("Bad request: HttpMessageNotReadableException", e);
-            return new ApiError(HttpStatus.BAD_REQUEST.value(), "Bad Request", "Bad request");
-        }
+    @DeleteMapping
+    @Operation(summary = "Delete Books in bulk",
+            responses = {
+                @ApiResponse(responseCode = "200", content = @Content(schema = @Schema(implementation = BookBulkOut.class))),
+                @ApiResponse(responseCode = "400", description = "Missing or invalid filters")})
+    public CompletableFuture<ResponseEntity<BookBulkOut>> deleteBooks(@And({
+                                      @Spec(path = "title", spec = Like.class),
+                                      @Spec(path = "isbn", spec = Like.class),
+                                      @Spec(
+                                              path = "publishedDate",
+                                              params = {"publishedAfter", "publishedBefore"},
+                                              spec = Between.class,
+                                              config = "yyyy-MM-dd",
+                                              onTypeMismatch = OnTypeMismatch.EXCEPTION
+                                      )
+                              })
+                              @Parameter(hidden = true) Specification<Book> bookSpec,
+                              @Parameter(description = "Book title")
+                              @RequestParam(value = "title", required = false) String title,
+                              @Parameter(description = "Book's ISBN code")
+                              @RequestParam(value = "isbn", required = false) String isbn,
+                              @Parameter(description = "Date Range parameter indicating the beginning of the range. " +
+                                      "Inform date in the format: 'yyyy-MM-dd'")
+                              @RequestParam(value = "publishedAfter", required = false) String publishedAfter,
+                              @Parameter(description = "Date Range parameter indicating the end of the range. " +
+                                      "Inform date in the format: 'yyyy-MM-dd'")
+                              @RequestParam(value = "publishedBefore", required = false) String publishedBefore,
+                              @Parameter(description = "Only count the matching books")
+                              @RequestParam(value = "dryRun", defaultValue = "false") boolean dryRun) {
+        return requestExecutor.execute(() -> ResponseEntity.ok(bookService.deleteBooks(bookSpec, dryRun)));
     }
-
 }
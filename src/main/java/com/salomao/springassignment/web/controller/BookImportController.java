@@ -0,0 +1,84 @@
+package com.salomao.springassignment.web.controller;
+
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.importer.ImportJob;
+import com.salomao.springassignment.service.BookImportService;
+import com.salomao.springassignment.web.dto.BookImportIn;
+import com.salomao.springassignment.web.dto.BookImportOut;
+import com.salomao.springassignment.web.message.BookMessages;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.Valid;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/book/import")
+@RequiredArgsConstructor
+@Slf4j
+public class BookImportController {
+
+    private final BookImportService bookImportService;
+
+    private final BookMessages messages;
+
+    /**
+     * Starts the import of a CSV file of the import directory. The import runs in the background, its progress is
+     * read from the returned id
+     *
+     * @param bookImportIn file to be imported
+     * @param request      HttpServletRequest
+     * @return ResponseEntity with StatusCode 202 and the progress of the import, StatusCode 400 BAD REQUEST or
+     * StatusCode 409 CONFLICT
+     */
+    @PostMapping
+    @Operation(summary = "Import Books from a CSV file",
+            responses = {@ApiResponse(responseCode = "400", description = "File not found or invalid header"),
+                    @ApiResponse(responseCode = "409", description = "File is already being imported")})
+    public ResponseEntity<BookImportOut> startImport(@Valid @RequestBody BookImportIn bookImportIn,
+                                                     HttpServletRequest request) throws ResponseException {
+        ImportJob job = bookImportService.startImport(bookImportIn.file());
+        log.info("Import {} of {} started", job.getId(), job.getFile());
+        return ResponseEntity.status(HttpStatus.ACCEPTED).body(importJobToImportOut(job, request.getLocale()));
+    }
+
+    /**
+     * Returns the progress of an import
+     *
+     * @param id      id of the import
+     * @param request HttpServletRequest
+     * @return ResponseEntity with StatusCode 200 and the progress of the import or StatusCode 404 NOT FOUND
+     */
+    @GetMapping("/{id}")
+    @Operation(summary = "Get import progress",
+            responses = {@ApiResponse(responseCode = "404", description = "Import was not found")})
+    public ResponseEntity<BookImportOut> getImport(@PathVariable String id, HttpServletRequest request)
+            throws ResponseException {
+        return ResponseEntity.ok(importJobToImportOut(bookImportService.getImport(id), request.getLocale()));
+    }
+
+    private BookImportOut importJobToImportOut(ImportJob job, Locale locale) {
+        return new BookImportOut(job.getId(),
+                job.getFile().getFileName().toString(),
+                job.getStatus(),
+                job.getTotalBytes(),
+                job.getBytesRead(),
+                job.getRowsRead(),
+                job.getInserted(),
+                job.getRejected(),
+                job.getRowsPerSecond(),
+                job.getReport().getFileName().toString(),
+                job.getError() == null ? null : messages.get(job.getError(), locale));
+    }
+}
@@ -0,0 +1,27 @@
+package com.salomao.springassignment.web.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Outcome of a single book of a batch insert
+ */
+@AllArgsConstructor
+@Data
+public class BookBatchItemOut {
+
+    /**
+     * Position of the book in the request
+     */
+    private int index;
+
+    private int status;
+
+    /**
+     * Id of the inserted book, null if it was rejected
+     */
+    private Integer id;
+
+    private String message;
+
+}
@@ -0,0 +1,13 @@
+package com.salomao.springassignment.web.dto;
+
+import java.util.List;
+
+/**
+ * Result of a batch insert
+ *
+ * @param inserted number of inserted books
+ * @param rejected number of rejected books
+ * @param items    outcome of every book, in request order
+ */
+public record BookBatchOut(int inserted, int rejected, List<BookBatchItemOut> items) {
+}
@@ -0,0 +1,11 @@
+package com.salomao.springassignment.web.dto;
+
+/**
+ * Result of a bulk update or delete
+ *
+ * @param matched  number of books matching the filters
+ * @param affected number of updated or deleted books, 0 on dry runs
+ * @param dryRun   true if the books were only counted
+ */
+public record BookBulkOut(long matched, long affected, boolean dryRun) {
+}
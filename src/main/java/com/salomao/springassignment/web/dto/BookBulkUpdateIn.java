@@ -0,0 +1,13 @@
+package com.salomao.springassignment.web.dto;
+
+import javax.validation.constraints.NotNull;
+import java.time.LocalDate;
+
+/**
+ * Fields set on every book matched by a bulk update. Titles and ISBNs are unique, so only the publication date can
+ * be set in bulk
+ *
+ * @param publishedDate new publication date
+ */
+public record BookBulkUpdateIn(@NotNull(message = "{error.book.publishedDate.notNull}") LocalDate publishedDate) {
+}
@@ -0,0 +1,19 @@
+package com.salomao.springassignment.web.dto;
+
+import java.time.Instant;
+
+/**
+ * A committed change of the catalogue
+ *
+ * @param sequence position of the change in the change log, increasing by one per change
+ * @param type     kind of change
+ * @param id       id of the changed book
+ * @param book     book after the change, null for deletions
+ * @param at       time the change was published
+ */
+public record BookChangeOut(long sequence, Type type, Integer id, BookRecordOut book, Instant at) {
+
+    public enum Type {
+        INSERTED, UPDATED, DELETED
+    }
+}
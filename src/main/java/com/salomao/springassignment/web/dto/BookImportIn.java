@@ -0,0 +1,11 @@
+package com.salomao.springassignment.web.dto;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * Request to import a CSV file with title, isbn and publishedDate columns
+ *
+ * @param file name of the file, relative to the configured import directory
+ */
+public record BookImportIn(@NotBlank(message = "{error.book.import.file.notNull}") String file) {
+}
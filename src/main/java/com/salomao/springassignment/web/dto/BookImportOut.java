@@ -0,0 +1,23 @@
+package com.salomao.springassignment.web.dto;
+
+import com.salomao.springassignment.importer.ImportJob;
+
+/**
+ * Progress of an import
+ *
+ * @param id            id of the import
+ * @param file          imported file
+ * @param status        status of the import
+ * @param totalBytes    size of the file
+ * @param bytesRead     bytes of the file already committed
+ * @param rowsRead      rows of the file already committed
+ * @param inserted      inserted books
+ * @param rejected      rejected rows, listed in the report
+ * @param rowsPerSecond rows read per second by the current run
+ * @param report        file listing the rejected rows and the reason of each rejection
+ * @param error         reason of the failure, null unless the import failed
+ */
+public record BookImportOut(String id, String file, ImportJob.Status status, long totalBytes, long bytesRead,
+                            long rowsRead, long inserted, long rejected, long rowsPerSecond, String report,
+                            String error) {
+}
@@ -0,0 +1,12 @@
+package com.salomao.springassignment.web.dto;
+
+import javax.validation.constraints.NotEmpty;
+import java.util.List;
+
+/**
+ * Ids of the books read by a multi-get
+ *
+ * @param ids book ids, duplicates are read once
+ */
+public record BookLookupIn(@NotEmpty(message = "{error.book.lookup.size}") List<Integer> ids) {
+}
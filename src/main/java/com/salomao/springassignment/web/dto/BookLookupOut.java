@@ -0,0 +1,12 @@
+package com.salomao.springassignment.web.dto;
+
+import java.util.List;
+
+/**
+ * Result of a multi-get
+ *
+ * @param books   books found, in the order of the requested ids
+ * @param missing requested ids without a book
+ */
+public record BookLookupOut(List<BookRecordOut> books, List<Integer> missing) {
+}
@@ -0,0 +1,12 @@
+package com.salomao.springassignment.web.dto;
+
+import java.util.List;
+
+/**
+ * Single page of a book listing
+ *
+ * @param books      books of the page
+ * @param nextCursor opaque token to request the next page, null if this is the last one
+ */
+public record BookPageOut(List<BookRecordOut> books, String nextCursor) {
+}
@@ -1,6 +1,12 @@
 package com.salomao.springassignment.web.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.time.LocalDate;
 
-public record BookRecordOut(Integer id, String title, String isbn, LocalDate publishedDate) {
+/**
+ * @param version version of the stored book, exposed through the ETag header only
+ */
+public record BookRecordOut(Integer id, String title, String isbn, LocalDate publishedDate,
+                            @JsonIgnore Long version) {
 }
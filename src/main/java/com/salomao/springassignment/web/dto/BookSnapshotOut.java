@@ -0,0 +1,12 @@
+package com.salomao.springassignment.web.dto;
+
+/**
+ * Outcome of writing or loading a snapshot
+ *
+ * @param file   name of the snapshot file
+ * @param books  number of books written or loaded
+ * @param bytes  size of the snapshot file
+ * @param millis time taken
+ */
+public record BookSnapshotOut(String file, long books, long bytes, long millis) {
+}
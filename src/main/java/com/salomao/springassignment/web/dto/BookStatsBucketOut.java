@@ -0,0 +1,10 @@
+package com.salomao.springassignment.web.dto;
+
+import java.time.LocalDate;
+
+/**
+ * @param start first date of the period
+ * @param count number of books published in the period and inside the requested range
+ */
+public record BookStatsBucketOut(LocalDate start, long count) {
+}
@@ -0,0 +1,20 @@
+package com.salomao.springassignment.web.dto;
+
+import com.salomao.springassignment.service.BookStatsBucket;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Number of books published in a range of dates
+ *
+ * @param from           first date of the range, the earliest publication date if not informed
+ * @param to             last date of the range, the latest publication date if not informed
+ * @param bucket         period the books are counted by
+ * @param total          number of books published in the range
+ * @param catalogueTotal number of books in the catalogue
+ * @param buckets        number of books of every period of the range, including empty ones
+ */
+public record BookStatsOut(LocalDate from, LocalDate to, BookStatsBucket bucket, long total, long catalogueTotal,
+                           List<BookStatsBucketOut> buckets) {
+}
@@ -0,0 +1,145 @@
+package com.salomao.springassignment.web.etag;
+
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Entity tags of book resources and evaluation of the If-Match and If-None-Match headers.
+ * <p>
+ * JSON, CBOR and Smile bodies of the same state differ byte for byte, so every representation gets its own strong tag:
+ * the JSON tag, with a '+cbor' or '+smile' suffix for the binary formats
+ */
+public final class BookETags {
+
+    private static final String WEAK_PREFIX = "W/";
+
+    private static final MediaType APPLICATION_SMILE = new MediaType("application", "x-jackson-smile");
+
+    /**
+     * Representations of book resources, in the order of their message converters
+     */
+    private static final List<MediaType> REPRESENTATIONS =
+            List.of(MediaType.APPLICATION_JSON, APPLICATION_SMILE, MediaType.APPLICATION_CBOR);
+
+    private BookETags() {
+    }
+
+    /**
+     * Strong tag of a single book. The version changes on every update, the hash of the fields keeps a reused id
+     * with the same version, as after a restart of an in-memory database, from looking unchanged
+     *
+     * @param book           stored book
+     * @param representation media type of the body, see representationOf
+     * @return quoted entity tag
+     */
+    public static String of(BookRecordOut book, MediaType representation) {
+        int hash = Objects.hash(book.title(), book.isbn(), book.publishedDate());
+        return "\"" + book.version() + "-" + Integer.toHexString(hash) + suffix(representation) + "\"";
+    }
+
+    /**
+     * Strong tag of a listing
+     *
+     * @param catalogueVersion current version of the catalogue
+     * @param representation   media type of the body, see representationOf
+     * @return quoted entity tag
+     */
+    public static String ofCatalogue(String catalogueVersion, MediaType representation) {
+        return "\"c" + catalogueVersion + suffix(representation) + "\"";
+    }
+
+    /**
+     * Representation a request is answered with, negotiated as Spring MVC does: every representation accepted by the
+     * Accept header takes the quality it is accepted with, and the most preferred one wins
+     *
+     * @param accept Accept header, may be null
+     * @return JSON, CBOR or Smile media type, JSON if the header accepts none of them or can't be parsed
+     */
+    public static MediaType representationOf(String accept) {
+        if (accept == null) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return MediaType.APPLICATION_JSON;
+        }
+        List<MediaType> candidates = new ArrayList<>();
+        for (MediaType type : accepted) {
+            for (MediaType representation : REPRESENTATIONS) {
+                if (type.isCompatibleWith(representation)) {
+                    candidates.add(representation.copyQualityValue(type));
+                }
+            }
+        }
+        MediaType.sortBySpecificityAndQuality(candidates);
+        return candidates.isEmpty() ? MediaType.APPLICATION_JSON : candidates.get(0).removeQualityValue();
+    }
+
+    /**
+     * Evaluates If-None-Match, using the weak comparison
+     *
+     * @param ifNoneMatch header value, may be null
+     * @param etag        current tag of the representation
+     * @return true if the client already holds the current representation
+     */
+    public static boolean isNotModified(String ifNoneMatch, String etag) {
+        return ifNoneMatch != null && anyMatches(ifNoneMatch, etag, true);
+    }
+
+    /**
+     * Evaluates If-Match, using the strong comparison. A tag of any representation of the current state meets it,
+     * since a write replaces all of them at once
+     *
+     * @param ifMatch header value, may be null
+     * @param etag    current tag of the resource, in any representation
+     * @return true if the header is absent or lists the current tag
+     */
+    public static boolean isPreconditionMet(String ifMatch, String etag) {
+        return ifMatch == null || anyMatches(ifMatch, etag, false);
+    }
+
+    private static boolean anyMatches(String header, String etag, boolean weak) {
+        String state = weak ? etag : withoutRepresentation(etag);
+        for (String candidate : header.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith(WEAK_PREFIX)) {
+                if (!weak) {
+                    continue;
+                }
+                tag = tag.substring(WEAK_PREFIX.length());
+            }
+            if ((weak ? tag : withoutRepresentation(tag)).equals(state)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String suffix(MediaType representation) {
+        if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(representation)) {
+            return "+cbor";
+        }
+        if (APPLICATION_SMILE.equalsTypeAndSubtype(representation)) {
+            return "+smile";
+        }
+        return "";
+    }
+
+    /**
+     * @return tag of the JSON representation of the same state
+     */
+    private static String withoutRepresentation(String tag) {
+        int suffix = tag.lastIndexOf('+');
+        return suffix < 0 ? tag : tag.substring(0, suffix) + "\"";
+    }
+}
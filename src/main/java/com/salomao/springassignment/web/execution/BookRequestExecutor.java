@@ -0,0 +1,106 @@
+package com.salomao.springassignment.web.execution;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.error.exception.UncheckedResponseException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the blocking work of BookController requests according to the configured execution mode.
+ * <p>
+ * BLOCKING runs the work on the servlet container thread and returns an already completed future.
+ * OFFLOAD hands it to a pool sized like the connection pool and frees the container thread through servlet async
+ * processing, so the container can hold many more concurrent requests than it has threads. The pool queue is bounded:
+ * once it is full requests are rejected right away with 503 SERVICE UNAVAILABLE instead of piling up.
+ * <p>
+ * Both modes return a future of a typed ResponseEntity, so the handlers declare the body they answer with
+ */
+@Slf4j
+@Component
+public class BookRequestExecutor implements MeterBinder {
+
+    private final BookProperties.Execution config;
+
+    private final ThreadPoolTaskExecutor executor;
+
+    public BookRequestExecutor(BookProperties bookProperties) {
+        this.config = bookProperties.getExecution();
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(config.getThreads());
+        executor.setMaxPoolSize(config.getThreads());
+        executor.setQueueCapacity(config.getQueueCapacity());
+        executor.setThreadNamePrefix("book-request-");
+        if (config.getMode() == BookProperties.Execution.Mode.OFFLOAD) {
+            executor.initialize();
+            log.info("Book requests offloaded to {} threads, queue capacity {}", config.getThreads(),
+                    config.getQueueCapacity());
+        }
+    }
+
+    /**
+     * Runs the work of a request. Controllers return the future as it is, Spring MVC writes the response once it is
+     * complete
+     *
+     * @param work blocking work producing the response
+     * @param <T>  type of the response body
+     * @return future completed with the response or with the error of the work: a ResponseException in BLOCKING mode,
+     * an UncheckedResponseException wrapping it in OFFLOAD mode, both answered by BookErrorHandler. Completed with
+     * 503 SERVICE UNAVAILABLE right away if the pool queue is full
+     */
+    public <T> CompletableFuture<ResponseEntity<T>> execute(Work<ResponseEntity<T>> work) {
+        if (config.getMode() == BookProperties.Execution.Mode.BLOCKING) {
+            try {
+                return CompletableFuture.completedFuture(work.get());
+            } catch (ResponseException e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return work.get();
+                } catch (ResponseException e) {
+                    throw new UncheckedResponseException(e);
+                }
+            }, executor);
+        } catch (TaskRejectedException e) {
+            return CompletableFuture.failedFuture(new ResponseException(BookError.SERVER_BUSY));
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (config.getMode() == BookProperties.Execution.Mode.OFFLOAD) {
+            new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "book.requests", List.of())
+                    .bindTo(registry);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Blocking work of a request, which may end in an error of the book API
+     *
+     * @param <T> type of the response
+     */
+    @FunctionalInterface
+    public interface Work<T> {
+
+        T get() throws ResponseException;
+    }
+}
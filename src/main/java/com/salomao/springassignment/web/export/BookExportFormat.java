@@ -0,0 +1,65 @@
+package com.salomao.springassignment.web.export;
+
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+
+/**
+ * Output formats supported by the catalogue export
+ */
+public enum BookExportFormat {
+    NDJSON(new MediaType("application", "x-ndjson"), "ndjson"),
+    CSV(new MediaType("text", "csv"), "csv"),
+    CBOR(new MediaType("application", "cbor-seq"), "cbor"),
+    SMILE(new MediaType("application", "x-jackson-smile"), "sml"),
+    SNAPSHOT(new MediaType("application", "x-book-snapshot"), "snapshot");
+
+    private final MediaType mediaType;
+
+    private final String extension;
+
+    BookExportFormat(MediaType mediaType, String extension) {
+        this.mediaType = mediaType;
+        this.extension = extension;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * Picks the format of an export requested without a format parameter from its Accept header. Only media types
+     * naming a format select it, wildcards and unknown types fall back to NDJSON
+     *
+     * @param accept Accept header, may be null
+     * @return preferred format the client accepts, NDJSON if none
+     */
+    public static BookExportFormat negotiate(String accept) {
+        if (accept == null) {
+            return NDJSON;
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (InvalidMediaTypeException e) {
+            return NDJSON;
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.getQualityValue() == 0) {
+                continue;
+            }
+            for (BookExportFormat format : values()) {
+                if (format.mediaType.equalsTypeAndSubtype(mediaType)) {
+                    return format;
+                }
+            }
+        }
+        return NDJSON;
+    }
+}
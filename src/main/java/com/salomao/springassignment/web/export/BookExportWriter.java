@@ -0,0 +1,200 @@
+package com.salomao.springassignment.web.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.salomao.springassignment.snapshot.BookSnapshotWriter;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes BookRecords one at a time to the response body, so exports never hold more than a buffer in memory
+ */
+public abstract class BookExportWriter {
+
+    private static final CBORFactory CBOR_FACTORY = new CBORFactory();
+
+    private static final SmileFactory SMILE_FACTORY = new SmileFactory();
+
+    /**
+     * Creates a writer for the requested format
+     *
+     * @param format       export format
+     * @param out          response output stream
+     * @param objectMapper mapper used for JSON based formats
+     * @return BookExportWriter for the format
+     * @throws IOException if the header can't be written
+     */
+    public static BookExportWriter of(BookExportFormat format, OutputStream out, ObjectMapper objectMapper)
+            throws IOException {
+        return switch (format) {
+            case NDJSON -> new NdjsonWriter(out, objectMapper);
+            case CSV -> new CsvWriter(out);
+            case CBOR -> new BinaryWriter(CBOR_FACTORY.createGenerator(out));
+            case SMILE -> new BinaryWriter(SMILE_FACTORY.createGenerator(out));
+            case SNAPSHOT -> new SnapshotWriter(out);
+        };
+    }
+
+    /**
+     * Writes a single book
+     *
+     * @param book book to be written
+     * @throws IOException if the client went away
+     */
+    public abstract void write(BookRecordOut book) throws IOException;
+
+    /**
+     * Pushes buffered rows to the client
+     *
+     * @throws IOException if the client went away
+     */
+    public abstract void flush() throws IOException;
+
+    /**
+     * Writes the end of the export, if the format has one, and pushes it to the client
+     *
+     * @throws IOException if the client went away
+     */
+    public void finish() throws IOException {
+        flush();
+    }
+
+    private abstract static class TextWriter extends BookExportWriter {
+
+        protected final Writer writer;
+
+        TextWriter(OutputStream out) {
+            this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+        }
+    }
+
+    private static class NdjsonWriter extends TextWriter {
+
+        private final ObjectMapper objectMapper;
+
+        private final JsonGenerator generator;
+
+        NdjsonWriter(OutputStream out, ObjectMapper objectMapper) throws IOException {
+            super(out);
+            this.objectMapper = objectMapper;
+            this.generator = objectMapper.getFactory().createGenerator(writer);
+            this.generator.setRootValueSeparator(new SerializedString("\n"));
+        }
+
+        @Override
+        public void write(BookRecordOut book) throws IOException {
+            objectMapper.writeValue(generator, book);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    private static class CsvWriter extends TextWriter {
+
+        CsvWriter(OutputStream out) throws IOException {
+            super(out);
+            writer.write("id,title,isbn,publishedDate\n");
+        }
+
+        @Override
+        public void write(BookRecordOut book) throws IOException {
+            writer.write(String.valueOf(book.id()));
+            writer.write(',');
+            writeField(book.title());
+            writer.write(',');
+            writeField(book.isbn());
+            writer.write(',');
+            writer.write(String.valueOf(book.publishedDate()));
+            writer.write('\n');
+        }
+
+        private void writeField(String value) throws IOException {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+                    && value.indexOf('\r') < 0) {
+                writer.write(value);
+                return;
+            }
+            writer.write('"');
+            writer.write(value.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    /**
+     * Sequence of CBOR or Smile objects with the fields of the JSON representation. The fields are written directly,
+     * without data binding, and Smile refers back to field names it already wrote instead of repeating them
+     */
+    private static class BinaryWriter extends BookExportWriter {
+
+        private final JsonGenerator generator;
+
+        BinaryWriter(JsonGenerator generator) {
+            this.generator = generator;
+        }
+
+        @Override
+        public void write(BookRecordOut book) throws IOException {
+            generator.writeStartObject();
+            generator.writeNumberField("id", book.id());
+            generator.writeStringField("title", book.title());
+            generator.writeStringField("isbn", book.isbn());
+            generator.writeStringField("publishedDate", book.publishedDate().toString());
+            generator.writeEndObject();
+        }
+
+        @Override
+        public void flush() throws IOException {
+            generator.flush();
+        }
+    }
+
+    /**
+     * The snapshot format: no field names, dates as numbers and deflated, see BookSnapshotWriter. Requires the
+     * ascending id order the export is written in
+     */
+    private static class SnapshotWriter extends BookExportWriter {
+
+        private final OutputStream out;
+
+        private final BookSnapshotWriter writer;
+
+        SnapshotWriter(OutputStream out) throws IOException {
+            this.out = out;
+            this.writer = new BookSnapshotWriter(out);
+        }
+
+        @Override
+        public void write(BookRecordOut book) throws IOException {
+            writer.write(book);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            writer.flush();
+            out.flush();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            writer.finish();
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.salomao.springassignment.web.message;
+
+import com.salomao.springassignment.error.exception.ResponseException;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Messages of the book API in the locale of the request. Every message is resolved from the message source once per
+ * locale and kept as a MessageTemplate, so answering a request, an error above all, doesn't walk the bundle fallback
+ * chain or parse a format pattern again. The message source caches its bundles forever, so neither goes stale.
+ * <p>
+ * Locales come from the Accept-Language header of clients, so only the first MAX_LOCALES locales are cached, later
+ * ones are resolved on every call
+ */
+@Component
+public class BookMessages {
+
+    static final int MAX_LOCALES = 64;
+
+    private final MessageSource messageSource;
+
+    private final Map<Locale, Map<String, MessageTemplate>> templates = new ConcurrentHashMap<>();
+
+    public BookMessages(MessageSource messageSource) {
+        this.messageSource = messageSource;
+    }
+
+    /**
+     * @param code   message code
+     * @param locale locale of the request
+     * @return message, as it is in the bundle
+     */
+    public String get(String code, Locale locale) {
+        return template(code, locale).render(null);
+    }
+
+    /**
+     * @param code     message code
+     * @param argument value of the '%s' placeholder of the message, such as an id
+     * @param locale   locale of the request
+     * @return message, with the argument in place of the placeholder
+     */
+    public String get(String code, Object argument, Locale locale) {
+        return template(code, locale).render(argument);
+    }
+
+    /**
+     * @param e      error
+     * @param locale locale of the request
+     * @return message of the error, with its argument in place of the placeholder
+     */
+    public String get(ResponseException e, Locale locale) {
+        return get(e.getError().getMessageCode(), e.getArgument(), locale);
+    }
+
+    private MessageTemplate template(String code, Locale locale) {
+        Map<String, MessageTemplate> byCode = templates.get(locale);
+        if (byCode == null) {
+            if (templates.size() >= MAX_LOCALES) {
+                return MessageTemplate.of(messageSource.getMessage(code, null, locale));
+            }
+            byCode = templates.computeIfAbsent(locale, key -> new ConcurrentHashMap<>());
+        }
+        MessageTemplate template = byCode.get(code);
+        if (template == null) {
+            template = MessageTemplate.of(messageSource.getMessage(code, null, locale));
+            byCode.putIfAbsent(code, template);
+        }
+        return template;
+    }
+}
@@ -0,0 +1,55 @@
+package com.salomao.springassignment.web.message;
+
+/**
+ * Resolved message, split around its '%s' placeholder so rendering it is a concatenation instead of String.format
+ * parsing the pattern on every response. Messages with other format specifiers are still formatted
+ */
+final class MessageTemplate {
+
+    private final String message;
+
+    /**
+     * Text before the placeholder, null if the message has no lone '%s' placeholder
+     */
+    private final String prefix;
+
+    private final String suffix;
+
+    private final boolean formatted;
+
+    private MessageTemplate(String message, String prefix, String suffix, boolean formatted) {
+        this.message = message;
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.formatted = formatted;
+    }
+
+    /**
+     * @param message message resolved from the message source
+     * @return template of the message
+     */
+    static MessageTemplate of(String message) {
+        int percent = message.indexOf('%');
+        if (percent < 0) {
+            return new MessageTemplate(message, null, null, false);
+        }
+        if (message.startsWith("s", percent + 1) && message.indexOf('%', percent + 1) < 0) {
+            return new MessageTemplate(message, message.substring(0, percent), message.substring(percent + 2), false);
+        }
+        return new MessageTemplate(message, null, null, true);
+    }
+
+    /**
+     * @param argument value of the placeholder, or null to return the message as it is
+     * @return rendered message
+     */
+    String render(Object argument) {
+        if (argument == null) {
+            return message;
+        }
+        if (prefix != null) {
+            return prefix + argument + suffix;
+        }
+        return formatted ? String.format(message, argument) : message;
+    }
+}
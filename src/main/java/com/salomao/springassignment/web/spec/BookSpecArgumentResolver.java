@@ -0,0 +1,40 @@
+package com.salomao.springassignment.web.spec;
+
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import net.kaczmarzyk.spring.data.jpa.web.SpecificationArgumentResolver;
+import org.springframework.core.MethodParameter;
+import org.springframework.web.bind.support.WebDataBinderFactory;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.method.support.HandlerMethodArgumentResolver;
+import org.springframework.web.method.support.ModelAndViewContainer;
+
+/**
+ * Resolves the specification parameters of the book controllers with the specification-arg-resolver library, answering its
+ * failures as errors of the book API. The library rejects invalid filters, such as a date range with one bound only,
+ * with an IllegalArgumentException while it builds the specification
+ */
+public class BookSpecArgumentResolver implements HandlerMethodArgumentResolver {
+
+    private final SpecificationArgumentResolver delegate = new SpecificationArgumentResolver();
+
+    @Override
+    public boolean supportsParameter(MethodParameter parameter) {
+        return delegate.supportsParameter(parameter);
+    }
+
+    /**
+     * @throws ResponseException 400 BAD REQUEST if the filters are invalid
+     */
+    @Override
+    public Object resolveArgument(MethodParameter parameter, ModelAndViewContainer mavContainer,
+                                  NativeWebRequest webRequest, WebDataBinderFactory binderFactory) throws Exception {
+        try {
+            return delegate.resolveArgument(parameter, mavContainer, webRequest, binderFactory);
+        } catch (IllegalArgumentException e) {
+            boolean after = webRequest.getParameter("publishedAfter") != null;
+            boolean before = webRequest.getParameter("publishedBefore") != null;
+            throw new ResponseException(after != before ? BookError.DATE_RANGE : BookError.MALFORMED_REQUEST);
+        }
+    }
+}
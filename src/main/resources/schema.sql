@@ -1,8 +1,15 @@
-CREATE TABLE Book
+CREATE SEQUENCE IF NOT EXISTS book_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS Book
 (
-    id   INTEGER      NOT NULL AUTO_INCREMENT,
+    id   INTEGER      DEFAULT NEXT VALUE FOR book_seq NOT NULL,
     title VARCHAR(200) NOT NULL,
     isbn VARCHAR(100) NOT NULL,
     published_date DATE NOT NULL,
-    PRIMARY KEY (id)
+    version BIGINT DEFAULT 0 NOT NULL,
+    PRIMARY KEY (id),
+    CONSTRAINT uk_book_title UNIQUE (title),
+    CONSTRAINT uk_book_isbn UNIQUE (isbn)
 );
+
+CREATE INDEX IF NOT EXISTS idx_book_published_date_id ON Book (published_date, id);
@@ -0,0 +1,53 @@
+package com.salomao.springassignment.changes;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.web.dto.BookChangeOut;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookChangeLogTests {
+
+    @Test
+    void readersBehindTheCapacityGetAGap() {
+        BookProperties bookProperties = new BookProperties();
+        bookProperties.getChanges().setCapacity(4);
+        BookChangeLog changeLog = new BookChangeLog(bookProperties);
+        for (int id = 1; id <= 6; id++) {
+            changeLog.deleted(id);
+        }
+
+        BookChangeLog.ChangeBatch batch = changeLog.read(2, 10);
+        assertFalse(batch.gap());
+        assertEquals(4, batch.changes().size());
+        assertEquals(3, batch.changes().get(0).sequence());
+        assertEquals(BookChangeOut.Type.DELETED, batch.changes().get(0).type());
+
+        assertEquals(2, changeLog.read(4, 2).changes().size());
+        assertTrue(changeLog.read(1, 10).gap());
+        assertTrue(changeLog.read(7, 10).gap());
+        assertTrue(changeLog.read(6, 10).changes().isEmpty());
+    }
+
+    @Test
+    void positionsOfAnotherRunGetAGap() throws InterruptedException {
+        BookChangeLog previousRun = new BookChangeLog(new BookProperties());
+        previousRun.deleted(1);
+        String previousPosition = previousRun.positionOf(previousRun.latest());
+        Thread.sleep(5);
+        BookChangeLog changeLog = new BookChangeLog(new BookProperties());
+        changeLog.deleted(1);
+        changeLog.deleted(2);
+
+        String position = changeLog.positionOf(1);
+        assertEquals(1, changeLog.sequenceOf(position));
+        assertEquals(1, changeLog.read(changeLog.sequenceOf(position), 10).changes().size());
+
+        assertEquals(-1, changeLog.sequenceOf(previousPosition));
+        assertTrue(changeLog.read(changeLog.sequenceOf(previousPosition), 10).gap());
+        assertTrue(changeLog.read(changeLog.sequenceOf("1"), 10).gap());
+        assertTrue(changeLog.read(changeLog.sequenceOf(position + "x"), 10).gap());
+    }
+}
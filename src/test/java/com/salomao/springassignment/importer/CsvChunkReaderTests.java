@@ -0,0 +1,54 @@
+package com.salomao.springassignment.importer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class CsvChunkReaderTests {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void chunksEndOnRecordBoundariesOnly() throws IOException {
+        Path file = directory.resolve("books.csv");
+        Files.writeString(file, "title,isbn,publishedDate\r\n"
+                + "\"line\nbreak\",1,2001-01-01\r\n"
+                + "\"say \"\"hi\"\"\",2,2002-02-02\n"
+                + "plain,3,2003-03-03", StandardCharsets.UTF_8);
+
+        List<CsvChunkReader.CsvChunk> chunks = new ArrayList<>();
+        try (CsvChunkReader reader = new CsvChunkReader(file, 0, 0, 2, 4)) {
+            for (CsvChunkReader.CsvChunk chunk = reader.next(); chunk != null; chunk = reader.next()) {
+                chunks.add(chunk);
+            }
+        }
+
+        assertEquals(2, chunks.size());
+        assertEquals(2, chunks.get(1).firstRecord());
+        assertEquals(Files.size(file), chunks.get(1).endOffset());
+
+        CsvRecords first = new CsvRecords(new String(chunks.get(0).bytes(), StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"title", "isbn", "publishedDate"}, first.next());
+        assertArrayEquals(new String[]{"line\nbreak", "1", "2001-01-01"}, first.next());
+        CsvRecords second = new CsvRecords(new String(chunks.get(1).bytes(), StandardCharsets.UTF_8));
+        assertArrayEquals(new String[]{"say \"hi\"", "2", "2002-02-02"}, second.next());
+        assertEquals("\"say \"\"hi\"\"\",2,2002-02-02", second.lastRecord());
+        assertArrayEquals(new String[]{"plain", "3", "2003-03-03"}, second.next());
+    }
+
+    @Test
+    void unterminatedQuoteIsMalformed() {
+        assertNull(new CsvRecords("\"open,1,2001-01-01").next());
+    }
+}
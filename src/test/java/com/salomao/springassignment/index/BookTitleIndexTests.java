@@ -0,0 +1,91 @@
+package com.salomao.springassignment.index;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.repository.BookRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class BookTitleIndexTests {
+
+    private final BookRepository bookRepo = mock(BookRepository.class);
+
+    private BookProperties bookProperties;
+
+    private BookTitleIndex titleIndex;
+
+    @BeforeEach
+    void setUp() {
+        when(bookRepo.streamIdsAndTitles()).thenReturn(Stream.of(
+                new Object[]{1, "Game of Thrones"},
+                new Object[]{2, "A Clash of Kings"},
+                new Object[]{3, "A Storm of Swords"},
+                new Object[]{4, "100% Fantasy"}));
+        bookProperties = new BookProperties();
+        bookProperties.getSearch().setMaxCandidates(2);
+        titleIndex = new BookTitleIndex(bookRepo, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                bookProperties);
+    }
+
+    @Test
+    void searchesFallBackToTheDatabaseUntilWarm() {
+        assertTrue(titleIndex.candidates("thrones").isEmpty());
+
+        titleIndex.warm();
+        assertArrayEquals(new int[]{1}, titleIndex.candidates("thrones").orElseThrow());
+    }
+
+    @Test
+    void searchesTheIndexCantNarrowFallBackToTheDatabase() {
+        titleIndex.warm();
+
+        assertTrue(titleIndex.candidates("of").isEmpty());
+        assertTrue(titleIndex.candidates("100%").isEmpty());
+        assertTrue(titleIndex.candidates("Cl_sh").isEmpty());
+        // 'of ' is in three titles, more than the configured maximum of candidates
+        assertTrue(titleIndex.candidates("of ").isEmpty());
+        assertArrayEquals(new int[0], titleIndex.candidates("dragons").orElseThrow());
+    }
+
+    @Test
+    void writesKeepTheIndexInSync() {
+        titleIndex.warm();
+
+        titleIndex.remove(1, "Game of Thrones");
+        titleIndex.add(1, "A Game of Thrones");
+        titleIndex.add(5, "A Feast for Crows");
+        assertArrayEquals(new int[]{1}, titleIndex.candidates("thrones").orElseThrow());
+        assertArrayEquals(new int[]{5}, titleIndex.candidates("crows").orElseThrow());
+
+        titleIndex.remove(5, "A Feast for Crows");
+        assertEquals(Optional.of(0), titleIndex.candidates("crows").map(ids -> ids.length));
+    }
+
+    @Test
+    void disabledIndexIsNeverUsed() {
+        bookProperties.getSearch().setEnabled(false);
+        titleIndex.warm();
+        titleIndex.add(5, "A Feast for Crows");
+
+        assertTrue(titleIndex.candidates("crows").isEmpty());
+    }
+
+    @Test
+    void relevanceRanksWholeTitlesThenPrefixesThenWords() {
+        assertEquals(4, BookTitleIndex.relevance("Dune", "dune"));
+        assertEquals(3, BookTitleIndex.relevance("Dune Messiah", "dune"));
+        assertEquals(2, BookTitleIndex.relevance("Children of Dune", "dune"));
+        assertEquals(1, BookTitleIndex.relevance("Dunedin", "edin"));
+        assertEquals(0, BookTitleIndex.relevance("Dune", "messiah"));
+    }
+}
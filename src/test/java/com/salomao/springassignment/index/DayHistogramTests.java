@@ -0,0 +1,31 @@
+package com.salomao.springassignment.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DayHistogramTests {
+
+    @Test
+    void rangesCountEveryDayOnce() {
+        DayHistogram histogram = new DayHistogram(LocalDate.of(1900, 1, 1), LocalDate.of(2099, 12, 31));
+        histogram.add(LocalDate.of(1996, 8, 1), 1);
+        histogram.add(LocalDate.of(1996, 12, 31), 2);
+        histogram.add(LocalDate.of(1997, 1, 1), 1);
+        histogram.add(LocalDate.of(1998, 7, 8), 1);
+        histogram.add(LocalDate.of(1998, 7, 8), -1);
+        histogram.add(LocalDate.of(1800, 1, 1), 1);
+
+        long[] counts = histogram.counts(new LocalDate[]{LocalDate.of(1996, 8, 1), LocalDate.of(1997, 1, 1)},
+                LocalDate.of(1998, 12, 31));
+
+        assertArrayEquals(new long[]{3, 1}, counts);
+        assertEquals(LocalDate.of(1996, 8, 1), histogram.first());
+        assertEquals(LocalDate.of(1997, 1, 1), histogram.last());
+        assertEquals(4, histogram.inside());
+        assertEquals(5, histogram.total());
+    }
+}
@@ -0,0 +1,71 @@
+package com.salomao.springassignment.index;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class TrigramIndexTests {
+
+    @Test
+    void searchReturnsASupersetOfTheMatches() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "Game of Thrones");
+        index.add(2, "A Clash of Kings");
+        index.add(3, "The Throne Room");
+        // contains the trigrams of 'abcd' without containing it
+        index.add(4, "abcxbcd");
+        index.add(5, "abcd");
+
+        assertArrayEquals(new int[]{1, 3}, index.search("THRONE", 10));
+        assertArrayEquals(new int[]{1}, index.search("thrones", 10));
+        assertArrayEquals(new int[]{4, 5}, index.search("abcd", 10));
+        assertArrayEquals(new int[0], index.search("dragons", 10));
+    }
+
+    @Test
+    void fragmentsShorterThanATrigramCantBeSearched() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(1, "It");
+
+        assertNull(index.search("It", 10));
+        assertArrayEquals(new int[0], index.search("Its", 10));
+    }
+
+    @Test
+    void searchesMatchingTooManyEntriesAreCutOff() {
+        TrigramIndex index = new TrigramIndex();
+        for (int id = 1; id <= 10; id++) {
+            index.add(id, "Book " + id);
+        }
+
+        assertNull(index.search("book", 9));
+        assertArrayEquals(new int[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10}, index.search("book", 10));
+        assertArrayEquals(new int[]{1, 10}, index.search("book 1", 9));
+    }
+
+    @Test
+    void removedAndUpdatedEntriesAreFoundByTheirNewText() {
+        TrigramIndex index = new TrigramIndex();
+        index.add(3, "Dune");
+        index.add(1, "Dune Messiah");
+        index.add(2, "Children of Dune");
+
+        index.remove(1, "Dune Messiah");
+        assertArrayEquals(new int[]{2, 3}, index.search("dune", 10));
+        assertArrayEquals(new int[0], index.search("messiah", 10));
+
+        // an update removes the old title and adds the new one
+        index.remove(2, "Children of Dune");
+        index.add(2, "God Emperor of Dune");
+        assertArrayEquals(new int[]{2, 3}, index.search("dune", 10));
+        assertArrayEquals(new int[0], index.search("children", 10));
+        assertArrayEquals(new int[]{2}, index.search("emperor", 10));
+
+        // removing an entry twice or with another text leaves the index alone
+        index.remove(2, "God Emperor of Dune");
+        index.remove(2, "God Emperor of Dune");
+        index.remove(3, "Frankenstein");
+        assertArrayEquals(new int[]{3}, index.search("dune", 10));
+    }
+}
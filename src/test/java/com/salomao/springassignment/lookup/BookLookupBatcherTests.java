@@ -0,0 +1,183 @@
+package com.salomao.springassignment.lookup;
+
+import com.salomao.springassignment.cache.BookCache;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.metrics.BookMetrics;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BookLookupBatcherTests {
+
+    private static final int BOOKS = 10;
+
+    /**
+     * Book whose query is held, see holdQuery
+     */
+    private static final int HELD = 1000;
+
+    private final CountDownLatch reading = new CountDownLatch(1);
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final BookRepository bookRepo = mock(BookRepository.class);
+
+    private BookLookupBatcher batcher;
+
+    private BookCache bookCache;
+
+    @AfterEach
+    void tearDown() {
+        batcher.shutdown();
+    }
+
+    @Test
+    void concurrentLookupsShareOneQuery() throws Exception {
+        setUp(Duration.ofMillis(300), 100);
+        CompletableFuture<Optional<BookRecordOut>> held = holdQuery();
+        int lookups = 2 * BOOKS;
+        CountDownLatch start = new CountDownLatch(1);
+        List<CompletableFuture<Optional<BookRecordOut>>> books = new ArrayList<>();
+        for (int id = 1; id <= lookups; id++) {
+            Integer bookId = id;
+            books.add(lookUp(() -> {
+                await(start);
+                return bookCache.get(bookId, batcher::load);
+            }));
+        }
+        start.countDown();
+
+        for (int id = 1; id <= lookups; id++) {
+            Optional<BookRecordOut> book = books.get(id - 1).get();
+            assertEquals(id <= BOOKS, book.isPresent());
+            book.ifPresent(found -> assertTrue(found.title().startsWith("book")));
+        }
+        release.countDown();
+        assertTrue(held.get().isPresent());
+        // the held query, then one for every other lookup
+        verify(bookRepo, times(2)).findRecordsByIdIn(anyCollection());
+    }
+
+    @Test
+    void loneLookupsDontWaitForTheWindow() {
+        setUp(Duration.ofMinutes(1), 100);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> {
+            assertTrue(bookCache.get(1, batcher::load).isPresent());
+            assertTrue(bookCache.get(2, batcher::load).isPresent());
+        });
+    }
+
+    @Test
+    void fullBatchesAreReadBeforeTheWindowEnds() throws Exception {
+        setUp(Duration.ofMinutes(1), 3);
+        CompletableFuture<Optional<BookRecordOut>> held = holdQuery();
+        List<CompletableFuture<Optional<BookRecordOut>>> books = new ArrayList<>();
+        for (int id = 1; id <= 3; id++) {
+            Integer bookId = id;
+            books.add(lookUp(() -> bookCache.get(bookId, batcher::load)));
+        }
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5),
+                () -> books.forEach(book -> assertTrue(book.join().isPresent())));
+        release.countDown();
+        assertTrue(held.get().isPresent());
+    }
+
+    @Test
+    void pendingLookupsDontHoldTheCache() throws Exception {
+        setUp(Duration.ofMillis(500), 100);
+        CompletableFuture<Optional<BookRecordOut>> held = holdQuery();
+        CompletableFuture<Optional<BookRecordOut>> book = lookUp(() -> bookCache.get(1, batcher::load));
+        Thread.sleep(100);
+        release.countDown();
+
+        // the lookup waits for its window, invalidating the book must not wait for it
+        assertTimeoutPreemptively(Duration.ofMillis(200), () -> bookCache.invalidate(1));
+        assertTrue(book.get().isPresent());
+        assertTrue(held.get().isPresent());
+
+        // the book invalidated while its lookup was pending was not cached by it
+        assertTrue(bookCache.get(1, batcher::load).isPresent());
+        verify(bookRepo, times(3)).findRecordsByIdIn(anyCollection());
+    }
+
+    @Test
+    void failedQueriesCompleteEveryLookup() {
+        setUp(Duration.ofMillis(300), 100);
+        when(bookRepo.findRecordsByIdIn(anyCollection())).thenThrow(new NoClassDefFoundError("BookRecordOut"));
+
+        CompletableFuture<Optional<BookRecordOut>> book = batcher.load(1);
+
+        ExecutionException e = assertThrows(ExecutionException.class, () -> book.get(5, TimeUnit.SECONDS));
+        assertTrue(e.getCause() instanceof NoClassDefFoundError);
+    }
+
+    private void setUp(Duration window, int maxBatchSize) {
+        BookProperties bookProperties = new BookProperties();
+        bookProperties.getLookup().setCoalesceWindow(window);
+        bookProperties.getLookup().setMaxBatchSize(maxBatchSize);
+        when(bookRepo.findRecordsByIdIn(anyCollection())).thenAnswer(invocation -> {
+            Collection<Integer> ids = invocation.getArgument(0);
+            if (ids.contains(HELD)) {
+                reading.countDown();
+                await(release);
+            }
+            return ids.stream()
+                    .filter(id -> id <= BOOKS || id == HELD)
+                    .map(id -> new BookRecordOut(id, "book " + id, "isbn" + id, LocalDate.EPOCH, 0L))
+                    .toList();
+        });
+        batcher = new BookLookupBatcher(bookRepo, bookProperties, new BookMetrics(new SimpleMeterRegistry()));
+        bookCache = new BookCache(bookProperties);
+    }
+
+    /**
+     * Starts a lookup whose query runs until release is counted down, so the lookups made meanwhile are batched
+     */
+    private CompletableFuture<Optional<BookRecordOut>> holdQuery() throws InterruptedException {
+        CompletableFuture<Optional<BookRecordOut>> held = lookUp(() -> bookCache.get(HELD, batcher::load));
+        reading.await();
+        return held;
+    }
+
+    /**
+     * Runs a lookup on a thread of its own, as a request would, since lookups block until their batch is read
+     */
+    private static CompletableFuture<Optional<BookRecordOut>> lookUp(Supplier<Optional<BookRecordOut>> lookup) {
+        return CompletableFuture.supplyAsync(lookup, runnable -> new Thread(runnable).start());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
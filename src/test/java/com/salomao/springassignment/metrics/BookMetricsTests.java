@@ -0,0 +1,39 @@
+package com.salomao.springassignment.metrics;
+
+import com.salomao.springassignment.error.BookError;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BookMetricsTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private final BookMetrics bookMetrics = new BookMetrics(registry);
+
+    @Test
+    void errorsAreCountedByTheirStatus() {
+        bookMetrics.recordError(BookError.SNAPSHOT_IO);
+        bookMetrics.recordError(BookError.IMPORT_NOT_FOUND);
+        bookMetrics.recordError(BookError.BOOK_NOT_FOUND);
+        bookMetrics.recordError(BookError.SNAPSHOT_NOT_EMPTY);
+        bookMetrics.recordError(BookError.PRECONDITION_FAILED);
+        bookMetrics.recordError(BookError.SERVER_BUSY);
+        bookMetrics.recordError(BookError.INVALID_CURSOR);
+        bookMetrics.recordError(BookError.BOOK_NOT_UNIQUE);
+        bookMetrics.recordError(BookError.DATE_FORMAT);
+
+        assertEquals(1, errors("server_error"));
+        assertEquals(2, errors("not_found"));
+        assertEquals(2, errors("conflict"));
+        assertEquals(1, errors("busy"));
+        assertEquals(1, errors("bad_request"));
+        assertEquals(1, errors("duplicate"));
+        assertEquals(1, errors("validation"));
+    }
+
+    private double errors(String type) {
+        return registry.get("book.errors").tag("type", type).counter().count();
+    }
+}
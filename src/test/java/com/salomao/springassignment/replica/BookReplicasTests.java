@@ -0,0 +1,118 @@
+package com.salomao.springassignment.replica;
+
+import com.salomao.springassignment.cache.BookCache;
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookReplicasTests {
+
+    private static final Duration LAG = Duration.ofMillis(300);
+
+    private HikariDataSource primary;
+
+    private BookChangeLog changeLog;
+
+    private BookReplicas replicas;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        primary = new HikariDataSource();
+        primary.setJdbcUrl("jdbc:h2:mem:book-replicas-tests;DB_CLOSE_DELAY=-1");
+        primary.setUsername("sa");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql")).execute(primary);
+        JdbcTemplate jdbc = new JdbcTemplate(primary);
+        jdbc.update("DELETE FROM book");
+        jdbc.update("INSERT INTO book (id, title, isbn, published_date, version) "
+                + "VALUES (1, 'game of thrones', '0553103547', DATE '1996-08-01', 0)");
+        BookProperties bookProperties = new BookProperties();
+        bookProperties.getReplicas().setCount(1);
+        bookProperties.getReplicas().setApplyDelay(LAG);
+        changeLog = new BookChangeLog(bookProperties);
+        replicas = new BookReplicas(primary, changeLog, bookProperties);
+        replicas.sync();
+        awaitCaughtUp();
+    }
+
+    @AfterEach
+    void tearDown() {
+        replicas.close();
+        primary.close();
+    }
+
+    @Test
+    void routesToThePrimaryWhileTheReplicaLags() throws InterruptedException {
+        DataSource replica = replicas.pick().orElseThrow();
+        new JdbcTemplate(primary).update("DELETE FROM book WHERE id = 1");
+        changeLog.deleted(1);
+
+        assertTrue(replicas.pick().isEmpty());
+        assertEquals(1, count(replica));
+
+        awaitCaughtUp();
+        assertEquals(0, count(replica));
+    }
+
+    @Test
+    void readsDuringADeleteNeverCacheTheDeletedBook() throws Exception {
+        BookCache bookCache = new BookCache(new BookProperties());
+        AtomicBoolean deleted = new AtomicBoolean();
+        CompletableFuture<Void> reader = CompletableFuture.runAsync(() -> {
+            while (!deleted.get()) {
+                bookCache.get(1, id -> CompletableFuture.completedFuture(read(id)));
+                bookCache.invalidate(1);
+            }
+        });
+        Thread.sleep(50);
+        // the order of BookService.deleteBook: commit, publish, then invalidate
+        new JdbcTemplate(primary).update("DELETE FROM book WHERE id = 1");
+        changeLog.deleted(1);
+        bookCache.invalidate(1);
+        deleted.set(true);
+        reader.get();
+
+        assertTrue(bookCache.get(1, id -> CompletableFuture.completedFuture(read(id))).isEmpty());
+    }
+
+    /**
+     * Reads a book the way BookRoutingDataSource routes a read-only transaction
+     */
+    private Optional<BookRecordOut> read(Integer id) {
+        DataSource dataSource = replicas.pick().orElse(primary);
+        List<BookRecordOut> books = new JdbcTemplate(dataSource).query(
+                "SELECT id, title, isbn, published_date, version FROM book WHERE id = ?",
+                (row, i) -> new BookRecordOut(row.getInt(1), row.getString(2), row.getString(3),
+                        row.getDate(4).toLocalDate(), row.getLong(5)), id);
+        return books.stream().findFirst();
+    }
+
+    private static int count(DataSource dataSource) {
+        Integer count = new JdbcTemplate(dataSource).queryForObject("SELECT COUNT(*) FROM book", Integer.class);
+        return count == null ? 0 : count;
+    }
+
+    private void awaitCaughtUp() throws InterruptedException {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (replicas.pick().isEmpty() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertTrue(replicas.pick().isPresent(), "replica did not catch up");
+    }
+}
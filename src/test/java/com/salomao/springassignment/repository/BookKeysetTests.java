@@ -0,0 +1,24 @@
+package com.salomao.springassignment.repository;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookKeysetTests {
+
+    @Test
+    void encodedKeysetDecodesToSamePosition() {
+        BookKeyset keyset = new BookKeyset(BookSort.PUBLISHED_DATE_DESC, 42, LocalDate.of(1996, 8, 1));
+
+        assertEquals(keyset, BookKeyset.decode(keyset.encode()).orElseThrow());
+    }
+
+    @Test
+    void malformedTokensAreRejected() {
+        assertTrue(BookKeyset.decode("not a cursor").isEmpty());
+        assertTrue(BookKeyset.decode(new BookKeyset(BookSort.PUBLISHED_DATE_ASC, 1, null).encode()).isEmpty());
+    }
+}
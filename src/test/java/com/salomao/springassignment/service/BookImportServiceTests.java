@@ -0,0 +1,124 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.importer.ImportCheckpoint;
+import com.salomao.springassignment.importer.ImportJob;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Imports through the whole stack, from the file to the database. Imports run in chunks of two rows, and finished
+ * imports are kept for a moment only. The context differs from the default one, so it gets a database of its own
+ * instead of loading data.sql again into the database of the default context
+ */
+@SpringBootTest(properties = {
+        "book.bulk-import.chunk-size=2",
+        "book.bulk-import.job-retention=200ms",
+        "spring.datasource.url=jdbc:h2:mem:bookimporttests;LAZY_QUERY_EXECUTION=TRUE"
+})
+class BookImportServiceTests {
+
+    @TempDir
+    static Path importDirectory;
+
+    @Autowired
+    private BookImportService importService;
+
+    @Autowired
+    private BookService bookService;
+
+    @DynamicPropertySource
+    static void importDirectory(DynamicPropertyRegistry registry) {
+        registry.add("book.bulk-import.directory", importDirectory::toString);
+    }
+
+    @Test
+    void resumeSkipsTheRowsOfAChunkCommittedWithoutItsCheckpoint() throws Exception {
+        String header = "title,isbn,publishedDate\n";
+        Path file = write("resumed.csv", header + """
+                Resumed Import One,9990070001,2007-01-01
+                Resumed Import Taken,9990070002,2007-01-02
+                Resumed Import Three,9990070003,2007-01-03
+                Resumed Import Four,9990070004,2007-01-04
+                Resumed Import Five,9990070005,2007-01-05
+                """);
+        // the first chunk was committed, but the run crashed before checkpointing it
+        bookService.insertBook(new BookRecordIn("Resumed Import One", "9990070001", LocalDate.of(2007, 1, 1)));
+        // a different book holds the title of the second row
+        bookService.insertBook(new BookRecordIn("Resumed Import Taken", "9990070009", LocalDate.of(2007, 1, 9)));
+        new ImportCheckpoint(Files.size(file), header.length(), 1, 0, 0).write(file);
+
+        ImportJob job = importService.startImport("resumed.csv");
+        awaitFinished(job);
+
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(5, job.getRowsRead());
+        assertEquals(4, job.getInserted());
+        assertEquals(1, job.getRejected());
+        List<String> report = Files.readAllLines(job.getReport());
+        assertEquals(2, report.size());
+        assertTrue(report.get(1).startsWith("2,error.book.notUnique,"));
+        assertFalse(Files.exists(ImportCheckpoint.pathOf(file)));
+    }
+
+    @Test
+    void finishedImportsAreForgottenAfterTheRetention() throws Exception {
+        write("retention.csv", """
+                title,isbn,publishedDate
+                Retained Import One,9990060001,2006-01-01
+                """);
+
+        ImportJob job = importService.startImport("retention.csv");
+        awaitFinished(job);
+        assertEquals(ImportJob.Status.COMPLETED, job.getStatus());
+        assertEquals(job, importService.getImport(job.getId()));
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                importService.getImport(job.getId());
+            } catch (ResponseException e) {
+                assertEquals(BookError.IMPORT_NOT_FOUND, e.getError());
+                return;
+            }
+            Thread.sleep(50);
+        }
+        fail("the finished import was never forgotten");
+    }
+
+    @Test
+    void unknownImportsAreNotFound() {
+        ResponseException e = assertThrows(ResponseException.class, () -> importService.getImport("unknown"));
+        assertEquals(BookError.IMPORT_NOT_FOUND, e.getError());
+    }
+
+    private static Path write(String fileName, String content) throws IOException {
+        return Files.writeString(importDirectory.resolve(fileName), content, StandardCharsets.UTF_8);
+    }
+
+    private static void awaitFinished(ImportJob job) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (job.isActive() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.cache.BookCache;
+import com.salomao.springassignment.cache.CatalogueVersion;
+import com.salomao.springassignment.changes.BookChangeLog;
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.BookError;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.index.BookTitleIndex;
+import com.salomao.springassignment.index.BookUniquenessIndex;
+import com.salomao.springassignment.lookup.BookLookupBatcher;
+import com.salomao.springassignment.model.Book;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import com.salomao.springassignment.web.etag.BookETags;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validator;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * If-Match handling of PUT and DELETE: a tag of an older version fails with 412 before anything is written, and a
+ * version bump racing with the write fails with 409, or 412 for conditional writes
+ */
+class BookServiceConditionalWriteTests {
+
+    private static final BookRecordIn UPDATE =
+            new BookRecordIn("A Game of Thrones", "0553103547", LocalDate.of(1996, 8, 1));
+
+    private final BookRepository bookRepo = mock(BookRepository.class);
+
+    private final BookUniquenessIndex uniquenessIndex = mock(BookUniquenessIndex.class);
+
+    private BookService bookService;
+
+    @BeforeEach
+    void setUp() {
+        BookProperties bookProperties = new BookProperties();
+        bookService = new BookService(bookRepo, bookProperties, mock(Validator.class),
+                new TransactionTemplate(mock(PlatformTransactionManager.class)), new BookCache(bookProperties),
+                uniquenessIndex, mock(BookTitleIndex.class), new CatalogueVersion(), mock(BookDateHistogram.class),
+                new BookChangeLog(bookProperties), mock(BookLookupBatcher.class));
+        when(bookRepo.findById(1)).thenAnswer(invocation -> Optional.of(book(2L)));
+        when(uniquenessIndex.reserve(anyString(), anyString())).thenReturn(true);
+        when(bookRepo.save(any(Book.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void staleIfMatchFailsUpdatesAndDeletes() {
+        String stale = etag(1L);
+
+        assertError(BookError.PRECONDITION_FAILED, () -> bookService.updateBook(1, UPDATE, stale));
+        assertError(BookError.PRECONDITION_FAILED, () -> bookService.deleteBook(1, stale));
+        verify(bookRepo, never()).save(any());
+        verify(bookRepo, never()).delete(any());
+    }
+
+    @Test
+    void currentIfMatchAllowsUpdatesAndDeletes() throws ResponseException {
+        assertEquals("success.book.update", bookService.updateBook(1, UPDATE, etag(2L)));
+        assertEquals("success.book.delete", bookService.deleteBook(1, "\"other\", " + etag(2L)));
+    }
+
+    @Test
+    void concurrentVersionBumpFailsUpdates() {
+        when(bookRepo.save(any(Book.class))).thenThrow(new ObjectOptimisticLockingFailureException(Book.class, 1));
+
+        assertError(BookError.CONFLICT, () -> bookService.updateBook(1, UPDATE, null));
+        assertError(BookError.PRECONDITION_FAILED, () -> bookService.updateBook(1, UPDATE, etag(2L)));
+    }
+
+    @Test
+    void concurrentVersionBumpFailsDeletes() {
+        doThrow(new ObjectOptimisticLockingFailureException(Book.class, 1)).when(bookRepo).delete(any(Book.class));
+
+        assertError(BookError.CONFLICT, () -> bookService.deleteBook(1, null));
+        assertError(BookError.PRECONDITION_FAILED, () -> bookService.deleteBook(1, etag(2L)));
+    }
+
+    private static Book book(Long version) {
+        Book book = new Book();
+        book.setId(1);
+        book.setTitle("Game of Thrones");
+        book.setIsbn("0553103547");
+        book.setPublishedDate(LocalDate.of(1996, 8, 1));
+        book.setVersion(version);
+        return book;
+    }
+
+    private static String etag(Long version) {
+        Book book = book(version);
+        return BookETags.of(new BookRecordOut(book.getId(), book.getTitle(), book.getIsbn(), book.getPublishedDate(),
+                book.getVersion()), MediaType.APPLICATION_JSON);
+    }
+
+    private static void assertError(BookError error, Write write) {
+        assertEquals(error, assertThrows(ResponseException.class, write::run).getError());
+    }
+
+    private interface Write {
+
+        void run() throws ResponseException;
+    }
+}
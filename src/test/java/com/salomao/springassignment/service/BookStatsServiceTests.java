@@ -0,0 +1,95 @@
+package com.salomao.springassignment.service;
+
+import com.salomao.springassignment.config.BookProperties;
+import com.salomao.springassignment.error.exception.ResponseException;
+import com.salomao.springassignment.index.BookDateHistogram;
+import com.salomao.springassignment.index.DayHistogram;
+import com.salomao.springassignment.repository.BookRepository;
+import com.salomao.springassignment.web.dto.BookStatsOut;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Open ranges whose only bound lies outside of the publication dates count nothing, whether the stats are served
+ * from the histogram or from the database
+ */
+class BookStatsServiceTests {
+
+    private static final LocalDate EARLIEST = LocalDate.of(1996, 8, 1);
+
+    private static final LocalDate LATEST = LocalDate.of(2005, 1, 1);
+
+    private final BookRepository bookRepo = mock(BookRepository.class);
+
+    private final BookDateHistogram dateHistogram = mock(BookDateHistogram.class);
+
+    private BookStatsService statsService;
+
+    @BeforeEach
+    void setUp() {
+        statsService = new BookStatsService(bookRepo, dateHistogram, new BookProperties());
+        when(bookRepo.summarizePublishedDates()).thenReturn(List.<Object[]>of(new Object[]{EARLIEST, LATEST, 2L}));
+    }
+
+    @Test
+    void rangesEndingBeforeTheEarliestBookAreEmpty() throws ResponseException {
+        LocalDate to = LocalDate.of(1900, 1, 1);
+
+        useHistogram();
+        assertEmpty(statsService.getStats(null, to, BookStatsBucket.YEAR));
+
+        useDatabase();
+        assertEmpty(statsService.getStats(null, to, BookStatsBucket.YEAR));
+    }
+
+    @Test
+    void rangesStartingAfterTheLatestBookAreEmpty() throws ResponseException {
+        LocalDate from = LocalDate.of(2100, 1, 1);
+
+        useHistogram();
+        assertEmpty(statsService.getStats(from, null, BookStatsBucket.DAY));
+
+        useDatabase();
+        assertEmpty(statsService.getStats(from, null, BookStatsBucket.DAY));
+    }
+
+    @Test
+    void openRangesEndAtTheEarliestAndLatestBooks() throws ResponseException {
+        useHistogram();
+        BookStatsOut stats = statsService.getStats(null, LocalDate.of(2000, 1, 1), BookStatsBucket.YEAR);
+
+        assertEquals(EARLIEST, stats.from());
+        assertEquals(1, stats.total());
+        assertEquals(5, stats.buckets().size());
+    }
+
+    private void useHistogram() {
+        DayHistogram histogram = new DayHistogram(LocalDate.of(1000, 1, 1), LocalDate.of(2999, 12, 31));
+        histogram.add(EARLIEST, 1);
+        histogram.add(LATEST, 1);
+        when(dateHistogram.histogram()).thenReturn(Optional.of(histogram));
+    }
+
+    private void useDatabase() {
+        when(dateHistogram.histogram()).thenReturn(Optional.empty());
+    }
+
+    private void assertEmpty(BookStatsOut stats) {
+        assertEquals(0, stats.total());
+        assertEquals(2, stats.catalogueTotal());
+        assertTrue(stats.buckets().isEmpty());
+        verify(bookRepo, never()).countByPublishedDateBetween(any(), any());
+    }
+}
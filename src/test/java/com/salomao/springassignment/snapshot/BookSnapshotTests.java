@@ -0,0 +1,65 @@
+package com.salomao.springassignment.snapshot;
+
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BookSnapshotTests {
+
+    private static final List<BookRecordOut> BOOKS = List.of(
+            new BookRecordOut(1, "game of thrones", "0553103547", LocalDate.of(1996, 8, 1), 0L),
+            new BookRecordOut(51, "les mis\u00e9rables", "9780140444308", LocalDate.of(1862, 4, 3), 7L),
+            new BookRecordOut(100_000, "beowulf", "9780393320978", LocalDate.of(1000, 1, 1), 1L));
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(write(true));
+        try (BookSnapshotReader reader = new BookSnapshotReader(in)) {
+            for (BookRecordOut book : BOOKS) {
+                assertEquals(book, reader.next());
+            }
+            assertNull(reader.next());
+        }
+    }
+
+    @Test
+    void refusesUnfinishedSnapshots() throws IOException {
+        ByteArrayInputStream in = new ByteArrayInputStream(write(false));
+        try (BookSnapshotReader reader = new BookSnapshotReader(in)) {
+            assertThrows(IOException.class, () -> {
+                while (reader.next() != null) {
+                    // reads until the missing end
+                }
+            });
+        }
+    }
+
+    @Test
+    void refusesOtherFiles() {
+        byte[] snapshot = Arrays.copyOf("title,isbn".getBytes(), 16);
+        assertThrows(IOException.class, () -> new BookSnapshotReader(new ByteArrayInputStream(snapshot)));
+    }
+
+    private static byte[] write(boolean finish) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (BookSnapshotWriter writer = new BookSnapshotWriter(out)) {
+            for (BookRecordOut book : BOOKS) {
+                writer.write(book);
+            }
+            if (finish) {
+                assertEquals(BOOKS.size(), writer.finish());
+            }
+        }
+        return out.toByteArray();
+    }
+}
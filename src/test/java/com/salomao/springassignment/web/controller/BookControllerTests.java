@@ -0,0 +1,199 @@
+package com.salomao.springassignment.web.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.salomao.springassignment.web.dto.BookRecordIn;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Requests through the whole stack, from the filter parameters to the database. Every test inserts its own books,
+ * with an ISBN prefix of its own to filter them from the books of the other tests. Bulk writes run in chunks of two
+ * books, so a handful of books walks several chunks. The context differs from the default one, so it gets a database
+ * of its own instead of loading data.sql again into the database of the default context
+ */
+@SpringBootTest(properties = {
+        "book.batch.chunk-size=2",
+        "spring.datasource.url=jdbc:h2:mem:bookcontrollertests;LAZY_QUERY_EXECUTION=TRUE"
+})
+@AutoConfigureMockMvc
+class BookControllerTests {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Test
+    void listingAppliesTheFilters() throws Exception {
+        insert(new BookRecordIn("Filtered Listing One", "9990020001", LocalDate.of(2001, 3, 1)),
+                new BookRecordIn("Filtered Listing Two", "9990020002", LocalDate.of(2001, 9, 1)),
+                new BookRecordIn("Filtered Listing Three", "9990020003", LocalDate.of(2005, 1, 1)));
+
+        perform(get("/book")
+                .param("isbn", "999002000")
+                .param("publishedAfter", "2001-01-01")
+                .param("publishedBefore", "2001-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[*].title", contains("Filtered Listing One", "Filtered Listing Two")));
+    }
+
+    @Test
+    void titleSearchFindsTheMatchingBooks() throws Exception {
+        insert(new BookRecordIn("Manual of the Harpsichord", "9990050001", LocalDate.of(2006, 1, 1)),
+                new BookRecordIn("ClavHarpsichordist", "9990050002", LocalDate.of(2006, 1, 1)),
+                new BookRecordIn("Harpsichord Repair", "9990050003", LocalDate.of(2006, 1, 1)),
+                new BookRecordIn("Harpsichord", "9990050004", LocalDate.of(2006, 1, 1)),
+                new BookRecordIn("Piano Tuning", "9990050005", LocalDate.of(2006, 1, 1)));
+
+        perform(get("/book").param("title", "Harpsichord"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[*].title", contains("Manual of the Harpsichord", "ClavHarpsichordist",
+                        "Harpsichord Repair", "Harpsichord")));
+        perform(get("/book").param("title", "Harpsichord").param("sort", "RELEVANCE"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[*].title", contains("Harpsichord", "Harpsichord Repair",
+                        "Manual of the Harpsichord", "ClavHarpsichordist")));
+        perform(get("/book").param("title", "Harpsichord").param("isbn", "9990050003"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[*].title", contains("Harpsichord Repair")));
+    }
+
+    @Test
+    void exportAppliesTheFilters() throws Exception {
+        insert(new BookRecordIn("Filtered Export One", "9990020011", LocalDate.of(2002, 3, 1)),
+                new BookRecordIn("Filtered Export Two", "9990020012", LocalDate.of(2002, 9, 1)),
+                new BookRecordIn("Filtered Export Other", "9990020021", LocalDate.of(2002, 9, 1)));
+
+        String body = perform(get("/book/export").param("isbn", "999002001"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("application/x-ndjson"))
+                .andReturn().getResponse().getContentAsString();
+
+        List<String> lines = body.lines().toList();
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).contains("Filtered Export One"));
+        assertTrue(lines.get(1).contains("Filtered Export Two"));
+    }
+
+    @Test
+    void malformedDateFiltersAreRejected() throws Exception {
+        String message = "Dates must be informed in 'yyyy-MM-dd' format";
+
+        perform(get("/book")
+                .param("publishedAfter", "2020-13-45")
+                .param("publishedBefore", "2021-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(message));
+        perform(get("/book/export")
+                .param("publishedAfter", "2020-13-45")
+                .param("publishedBefore", "2021-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.message").value(message));
+        perform(delete("/book")
+                .param("publishedAfter", "2020-13-45")
+                .param("publishedBefore", "2021-01-01"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(message));
+    }
+
+    @Test
+    void bulkUpdateSetsTheDateOfEveryMatchingBook() throws Exception {
+        insert(new BookRecordIn("Bulk Update One", "9990030001", LocalDate.of(2003, 1, 1)),
+                new BookRecordIn("Bulk Update Two", "9990030002", LocalDate.of(2003, 2, 1)),
+                new BookRecordIn("Bulk Update Three", "9990030003", LocalDate.of(2003, 3, 1)),
+                new BookRecordIn("Bulk Update Four", "9990030004", LocalDate.of(2003, 4, 1)),
+                new BookRecordIn("Bulk Update Five", "9990030005", LocalDate.of(2003, 5, 1)),
+                new BookRecordIn("Bulk Update Other", "9990031001", LocalDate.of(2003, 6, 1)));
+        String update = "{\"publishedDate\": \"2010-05-05\"}";
+
+        perform(patch("/book").param("isbn", "9990030").param("dryRun", "true")
+                .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched").value(5))
+                .andExpect(jsonPath("$.affected").value(0))
+                .andExpect(jsonPath("$.dryRun").value(true));
+        perform(patch("/book").param("isbn", "9990030")
+                .contentType(MediaType.APPLICATION_JSON).content(update))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched").value(5))
+                .andExpect(jsonPath("$.affected").value(5));
+
+        perform(get("/book")
+                .param("isbn", "999003")
+                .param("publishedAfter", "2010-05-05")
+                .param("publishedBefore", "2010-05-05"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[*].isbn", contains("9990030001", "9990030002", "9990030003",
+                        "9990030004", "9990030005")));
+    }
+
+    @Test
+    void bulkDeleteRemovesEveryMatchingBook() throws Exception {
+        insert(new BookRecordIn("Bulk Delete One", "9990040001", LocalDate.of(2004, 1, 1)),
+                new BookRecordIn("Bulk Delete Two", "9990040002", LocalDate.of(2004, 2, 1)),
+                new BookRecordIn("Bulk Delete Three", "9990040003", LocalDate.of(2004, 3, 1)),
+                new BookRecordIn("Bulk Delete Four", "9990040004", LocalDate.of(2004, 4, 1)),
+                new BookRecordIn("Bulk Delete Kept", "9990040005", LocalDate.of(2008, 1, 1)));
+
+        perform(delete("/book")
+                .param("isbn", "9990040")
+                .param("publishedAfter", "2004-01-01")
+                .param("publishedBefore", "2004-12-31"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.matched").value(4))
+                .andExpect(jsonPath("$.affected").value(4));
+
+        perform(get("/book").param("isbn", "9990040"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.books[*].title", contains("Bulk Delete Kept")));
+    }
+
+    @Test
+    void bulkWritesRequireAFilter() throws Exception {
+        perform(delete("/book"))
+                .andExpect(status().isBadRequest());
+        perform(patch("/book").contentType(MediaType.APPLICATION_JSON).content("{\"publishedDate\": \"2010-05-05\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void insert(BookRecordIn... books) throws Exception {
+        perform(post("/book/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsBytes(books)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.inserted").value(books.length));
+    }
+
+    /**
+     * Performs a request, dispatching it again once its asynchronous processing has started, as the container would
+     */
+    private ResultActions perform(RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+}
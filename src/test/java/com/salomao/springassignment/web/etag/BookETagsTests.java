@@ -0,0 +1,91 @@
+package com.salomao.springassignment.web.etag;
+
+import com.salomao.springassignment.web.dto.BookRecordOut;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BookETagsTests {
+
+    private static final MediaType SMILE = new MediaType("application", "x-jackson-smile");
+
+    private static final BookRecordOut BOOK =
+            new BookRecordOut(1, "Game of Thrones", "0553103547", LocalDate.of(1996, 8, 1), 3L);
+
+    private static final String ETAG = BookETags.of(BOOK, MediaType.APPLICATION_JSON);
+
+    @Test
+    void tagsAreQuotedAndChangeWithTheBook() {
+        assertTrue(ETAG.startsWith("\"3-") && ETAG.endsWith("\""));
+        assertNotEquals(ETAG, BookETags.of(
+                new BookRecordOut(1, "Game of Thrones", "0553103547", LocalDate.of(1996, 8, 1), 4L),
+                MediaType.APPLICATION_JSON));
+        assertNotEquals(ETAG, BookETags.of(
+                new BookRecordOut(1, "A Game of Thrones", "0553103547", LocalDate.of(1996, 8, 1), 3L),
+                MediaType.APPLICATION_JSON));
+        assertEquals("\"cabc-1\"", BookETags.ofCatalogue("abc-1", MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void everyRepresentationHasItsOwnTag() {
+        String cbor = BookETags.of(BOOK, MediaType.APPLICATION_CBOR);
+        String smile = BookETags.of(BOOK, SMILE);
+
+        assertEquals(ETAG.substring(0, ETAG.length() - 1) + "+cbor\"", cbor);
+        assertEquals(ETAG.substring(0, ETAG.length() - 1) + "+smile\"", smile);
+        assertEquals("\"cabc-1+cbor\"", BookETags.ofCatalogue("abc-1", MediaType.APPLICATION_CBOR));
+        assertFalse(BookETags.isNotModified(ETAG, cbor));
+        assertFalse(BookETags.isNotModified(cbor, smile));
+    }
+
+    @Test
+    void representationIsNegotiatedFromAccept() {
+        assertEquals(MediaType.APPLICATION_JSON, BookETags.representationOf(null));
+        assertEquals(MediaType.APPLICATION_JSON, BookETags.representationOf("*/*"));
+        assertEquals(MediaType.APPLICATION_JSON, BookETags.representationOf("text/html, */*;q=0.8"));
+        assertEquals(MediaType.APPLICATION_CBOR, BookETags.representationOf("application/cbor"));
+        assertEquals(SMILE, BookETags.representationOf("application/json;q=0.5, application/x-jackson-smile"));
+        assertEquals(MediaType.APPLICATION_JSON, BookETags.representationOf("application/cbor;q=0.5, application/*"));
+        assertEquals(MediaType.APPLICATION_JSON, BookETags.representationOf("not a media type"));
+    }
+
+    @Test
+    void ifNoneMatchUsesTheWeakComparison() {
+        assertFalse(BookETags.isNotModified(null, ETAG));
+        assertTrue(BookETags.isNotModified(ETAG, ETAG));
+        assertTrue(BookETags.isNotModified("W/" + ETAG, ETAG));
+        assertTrue(BookETags.isNotModified("\"other\", " + ETAG, ETAG));
+        assertTrue(BookETags.isNotModified("\"other\",W/" + ETAG + " ,\"another\"", ETAG));
+        assertTrue(BookETags.isNotModified("*", ETAG));
+        assertFalse(BookETags.isNotModified("\"other\", W/\"another\"", ETAG));
+        // tags are compared with their quotes
+        assertFalse(BookETags.isNotModified(ETAG.substring(1, ETAG.length() - 1), ETAG));
+    }
+
+    @Test
+    void ifMatchUsesTheStrongComparison() {
+        assertTrue(BookETags.isPreconditionMet(null, ETAG));
+        assertTrue(BookETags.isPreconditionMet(ETAG, ETAG));
+        assertTrue(BookETags.isPreconditionMet("\"other\", " + ETAG, ETAG));
+        assertTrue(BookETags.isPreconditionMet("*", ETAG));
+        assertFalse(BookETags.isPreconditionMet("W/" + ETAG, ETAG));
+        assertFalse(BookETags.isPreconditionMet("W/" + ETAG + ", \"other\"", ETAG));
+        assertFalse(BookETags.isPreconditionMet("\"other\"", ETAG));
+        assertFalse(BookETags.isPreconditionMet(ETAG.substring(1, ETAG.length() - 1), ETAG));
+    }
+
+    @Test
+    void ifMatchAcceptsTheTagOfAnyRepresentation() {
+        assertTrue(BookETags.isPreconditionMet(BookETags.of(BOOK, MediaType.APPLICATION_CBOR), ETAG));
+        assertTrue(BookETags.isPreconditionMet(BookETags.of(BOOK, SMILE), ETAG));
+        assertFalse(BookETags.isPreconditionMet(BookETags.of(
+                new BookRecordOut(1, "Game of Thrones", "0553103547", LocalDate.of(1996, 8, 1), 2L),
+                MediaType.APPLICATION_CBOR), ETAG));
+    }
+}
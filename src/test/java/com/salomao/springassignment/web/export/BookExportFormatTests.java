@@ -0,0 +1,29 @@
+package com.salomao.springassignment.web.export;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class BookExportFormatTests {
+
+    @Test
+    void defaultsToNdjson() {
+        assertEquals(BookExportFormat.NDJSON, BookExportFormat.negotiate(null));
+        assertEquals(BookExportFormat.NDJSON, BookExportFormat.negotiate("*/*"));
+        assertEquals(BookExportFormat.NDJSON, BookExportFormat.negotiate("application/*, text/html"));
+        assertEquals(BookExportFormat.NDJSON, BookExportFormat.negotiate("not a media type"));
+    }
+
+    @Test
+    void picksTheAcceptedFormat() {
+        assertEquals(BookExportFormat.CBOR, BookExportFormat.negotiate("application/cbor-seq"));
+        assertEquals(BookExportFormat.CSV, BookExportFormat.negotiate("text/html, text/csv;charset=UTF-8"));
+    }
+
+    @Test
+    void followsTheQuality() {
+        assertEquals(BookExportFormat.SMILE,
+                BookExportFormat.negotiate("text/csv;q=0.5, application/x-jackson-smile"));
+        assertEquals(BookExportFormat.NDJSON, BookExportFormat.negotiate("application/x-book-snapshot;q=0"));
+    }
+}
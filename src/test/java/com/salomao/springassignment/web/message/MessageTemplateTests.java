@@ -0,0 +1,27 @@
+package com.salomao.springassignment.web.message;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MessageTemplateTests {
+
+    @Test
+    void replacesThePlaceholder() {
+        MessageTemplate template = MessageTemplate.of("Book with id %s was not found");
+        assertEquals("Book with id 42 was not found", template.render(42));
+        assertEquals("Book with id %s was not found", template.render(null));
+        assertEquals("42 ", MessageTemplate.of("%s ").render(42));
+    }
+
+    @Test
+    void keepsMessagesWithoutPlaceholder() {
+        assertEquals("Bad request", MessageTemplate.of("Bad request").render(42));
+    }
+
+    @Test
+    void formatsOtherSpecifiers() {
+        assertEquals("100% of 42", MessageTemplate.of("100%% of %s").render(42));
+        assertEquals("Book 042", MessageTemplate.of("Book %03d").render(42));
+    }
+}